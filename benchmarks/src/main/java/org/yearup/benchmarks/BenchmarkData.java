@@ -0,0 +1,56 @@
+package org.yearup.benchmarks;
+
+import org.yearup.models.Product;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartItem;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic test data shaped like the real catalog.
+ */
+public final class BenchmarkData
+{
+    public static final String[] COLORS = { "Black", "White", "Gray", "Red", "Blue", "Green", "Brown", "Silver" };
+    public static final int CATEGORIES = 3;
+
+    private BenchmarkData()
+    {
+    }
+
+    public static List<Product> products(int count)
+    {
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++)
+        {
+            products.add(new Product(
+                    i,
+                    "Product " + i,
+                    BigDecimal.valueOf(random.nextInt(100_000), 2),
+                    1 + random.nextInt(CATEGORIES),
+                    "A description of product " + i + " that is about as long as the ones in the sample data.",
+                    COLORS[random.nextInt(COLORS.length)],
+                    random.nextInt(500),
+                    random.nextInt(10) == 0,
+                    "product-" + i + ".jpg"));
+        }
+        return products;
+    }
+
+    public static ShoppingCart cart(int lines)
+    {
+        ShoppingCart cart = new ShoppingCart();
+        for (Product product : products(lines))
+        {
+            ShoppingCartItem item = new ShoppingCartItem();
+            item.setProduct(product);
+            item.setQuantity(1 + product.getProductId() % 3);
+            cart.add(item);
+        }
+        return cart;
+    }
+}
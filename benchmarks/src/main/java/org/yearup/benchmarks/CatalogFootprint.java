@@ -0,0 +1,116 @@
+package org.yearup.benchmarks;
+
+import org.yearup.data.catalog.CatalogSnapshot;
+import org.yearup.models.Product;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Not a JMH benchmark: compares keeping the catalog resident as a
+ * List<Product> with keeping it as a (columnar) CatalogSnapshot.
+ *
+ * For each it reports the heap retained after a full collection, the average
+ * time of a full collection while it is resident (the collector has to trace
+ * every live object), and the time of one pass that reads every product's
+ * price - for the snapshot that includes building the Product objects.
+ *
+ *   java -Xmx2g -cp target/benchmarks.jar org.yearup.benchmarks.CatalogFootprint [--products 500000] [--collections 5]
+ *
+ * The snapshot's number includes its category, color and price indexes.
+ */
+public class CatalogFootprint
+{
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    private int products = 500_000;
+    private int collections = 5;
+
+    public static void main(String[] args)
+    {
+        CatalogFootprint footprint = new CatalogFootprint();
+        footprint.parse(args);
+
+        System.out.printf("%d products, %s%n%n", footprint.products, System.getProperty("java.vm.name"));
+        System.out.printf("%-16s %12s %14s %14s %12s%n", "representation", "retained MB", "bytes/product", "full GC ms", "scan ms");
+
+        footprint.measure("List<Product>", () -> BenchmarkData.products(footprint.products));
+        footprint.measure("CatalogSnapshot", () -> CatalogSnapshot.of(BenchmarkData.products(footprint.products)));
+    }
+
+    private void parse(String[] args)
+    {
+        for (int i = 0; i < args.length; i++)
+        {
+            switch (args[i])
+            {
+                case "--products": products = Integer.parseInt(args[++i]); break;
+                case "--collections": collections = Integer.parseInt(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+    }
+
+    private void measure(String name, Supplier<Object> build)
+    {
+        long before = usedAfterCollection();
+        Object catalog = build.get();
+        long retained = usedAfterCollection() - before;
+
+        long gcNanos = 0;
+        for (int i = 0; i < collections; i++)
+        {
+            long gcTimeBefore = gcMillis();
+            long start = System.nanoTime();
+            System.gc();
+            // prefer the collectors' own accounting; fall back to wall time if they report none
+            long reported = gcMillis() - gcTimeBefore;
+            gcNanos += reported > 0 ? reported * 1_000_000 : System.nanoTime() - start;
+        }
+
+        long start = System.nanoTime();
+        BigDecimal total = BigDecimal.ZERO;
+        for (Product product : products(catalog))
+        {
+            total = total.add(product.getPrice());
+        }
+        long scanNanos = System.nanoTime() - start;
+
+        System.out.printf("%-16s %12.1f %14d %14.1f %12.1f%n",
+                          name, retained / (1024.0 * 1024.0), retained / products,
+                          gcNanos / (collections * 1_000_000.0), scanNanos / 1_000_000.0);
+
+        // keeps the catalog and the scan's result reachable up to here
+        if (total.signum() < 0 || catalog.hashCode() == 0)
+            System.out.println();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Product> products(Object catalog)
+    {
+        return catalog instanceof CatalogSnapshot ? ((CatalogSnapshot) catalog).getAll() : (List<Product>) catalog;
+    }
+
+    private static long usedAfterCollection()
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            System.gc();
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+
+    private static long gcMillis()
+    {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+}
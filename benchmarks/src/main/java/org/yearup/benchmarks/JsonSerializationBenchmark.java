@@ -0,0 +1,97 @@
+package org.yearup.benchmarks;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.yearup.data.ProductJsonWriter;
+import org.yearup.data.catalog.CatalogSnapshot;
+import org.yearup.models.Product;
+import org.yearup.models.ShoppingCart;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the two largest response bodies, with the
+ * ObjectMapper configured the way Spring Boot configures it, and the product
+ * list written by ProductJsonWriter instead - from Products, and from the
+ * catalog snapshot's columns. Run with -prof gc to compare allocation per list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark
+{
+    @Param({ "100", "1000" })
+    public int products;
+
+    private ObjectMapper objectMapper;
+    private List<Product> productList;
+    private CatalogSnapshot snapshot;
+    private ShoppingCart cart;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        productList = BenchmarkData.products(products);
+        snapshot = CatalogSnapshot.of(productList);
+        cart = BenchmarkData.cart(20);
+    }
+
+    @Benchmark
+    public byte[] productList() throws Exception
+    {
+        return objectMapper.writeValueAsBytes(productList);
+    }
+
+    @Benchmark
+    public byte[] productListWriter() throws Exception
+    {
+        // the same buffer ProductJsonStreamer writes to
+        ByteArrayBuilder out = new ByteArrayBuilder();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out))
+        {
+            generator.writeStartArray();
+            for (Product product : productList)
+            {
+                ProductJsonWriter.write(generator, product);
+            }
+            generator.writeEndArray();
+        }
+        return out.toByteArray();
+    }
+
+    // what GET /products does with the snapshot: Products built from the columns, then Jackson
+    @Benchmark
+    public byte[] snapshotJackson() throws Exception
+    {
+        return objectMapper.writeValueAsBytes(snapshot.getAll());
+    }
+
+    // and what it does now: the columns written straight to the generator
+    @Benchmark
+    public byte[] snapshotWriter() throws Exception
+    {
+        // the same buffer ProductJsonStreamer writes to
+        ByteArrayBuilder out = new ByteArrayBuilder();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out))
+        {
+            generator.writeStartArray();
+            snapshot.writeSearchJson(null, null, null, null, generator);
+            generator.writeEndArray();
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] shoppingCart() throws Exception
+    {
+        return objectMapper.writeValueAsBytes(cart);
+    }
+}
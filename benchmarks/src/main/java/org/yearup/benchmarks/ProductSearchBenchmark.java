@@ -0,0 +1,156 @@
+package org.yearup.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.yearup.controllers.ProductJsonStreamer;
+import org.yearup.controllers.ProductsController;
+import org.yearup.data.ProductDao;
+import org.yearup.data.cache.CacheRegistry;
+import org.yearup.data.catalog.CatalogVersions;
+import org.yearup.data.catalog.ProductFacetService;
+import org.yearup.data.catalog.ProductViews;
+import org.yearup.data.catalog.SnapshotProductDao;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.data.search.ProductSearchService;
+import org.yearup.models.Product;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /products end to end - controller, DAO, JDBC and JSON serialization -
+ * against an embedded H2 database in MySQL mode. Runs once straight against
+ * MySqlProductDao and once through the in-memory catalog snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductSearchBenchmark
+{
+    @Param({ "mysql", "snapshot" })
+    public String dao;
+
+    @Param({ "10000" })
+    public int products;
+
+    private JdbcConnectionPool dataSource;
+    private ProductsController controller;
+    private ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException
+    {
+        dataSource = JdbcConnectionPool.create("jdbc:h2:mem:easyshop;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        createCatalog();
+
+        MySqlProductDao mySqlProductDao = new MySqlProductDao(dataSource);
+        ProductDao productDao = dao.equals("snapshot") ? new SnapshotProductDao(mySqlProductDao) : mySqlProductDao;
+
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        CatalogVersions catalogVersions = new CatalogVersions();
+        controller = new ProductsController(productDao,
+                                            new ProductJsonStreamer(objectMapper),
+                                            new ProductSearchService(productDao),
+                                            catalogVersions,
+                                            new ProductViews(productDao, 5),
+                                            new ProductFacetService(productDao, new CacheRegistry(),
+                                                                    "0,25,50,100,250,500,1000", 300, 1000));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException
+    {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement())
+        {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        dataSource.dispose();
+    }
+
+    @Benchmark
+    public byte[] searchAll() throws Exception
+    {
+        return serialize(controller.search(null, null, null, null, null, null, null, request()));
+    }
+
+    @Benchmark
+    public byte[] searchFiltered() throws Exception
+    {
+        return serialize(controller.search(1, new BigDecimal("100"), new BigDecimal("400"), "Black", null, null, null, request()));
+    }
+
+    private byte[] serialize(ResponseEntity<?> response) throws Exception
+    {
+        // listings are written to JSON by the controller itself
+        if (response.getBody() instanceof byte[])
+            return (byte[]) response.getBody();
+        return objectMapper.writeValueAsBytes(response.getBody());
+    }
+
+    private static ServletWebRequest request()
+    {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/products"), new MockHttpServletResponse());
+    }
+
+    private void createCatalog() throws SQLException
+    {
+        try (Connection connection = dataSource.getConnection())
+        {
+            try (Statement statement = connection.createStatement())
+            {
+                statement.execute("CREATE TABLE categories (" +
+                        " category_id INT NOT NULL AUTO_INCREMENT PRIMARY KEY," +
+                        " name VARCHAR(50) NOT NULL," +
+                        " description TEXT)");
+                statement.execute("CREATE TABLE products (" +
+                        " product_id INT NOT NULL AUTO_INCREMENT PRIMARY KEY," +
+                        " name VARCHAR(100) NOT NULL," +
+                        " price DECIMAL(10, 2) NOT NULL," +
+                        " category_id INT NOT NULL," +
+                        " description TEXT," +
+                        " color VARCHAR(20)," +
+                        " image_url VARCHAR(200)," +
+                        " stock INT NOT NULL DEFAULT 0," +
+                        " featured BOOL NOT NULL DEFAULT 0," +
+                        " FOREIGN KEY (category_id) REFERENCES categories(category_id))");
+                for (int i = 1; i <= BenchmarkData.CATEGORIES; i++)
+                {
+                    statement.execute("INSERT INTO categories (name, description) VALUES ('Category " + i + "', '')");
+                }
+            }
+
+            String sql = "INSERT INTO products (name, price, category_id, description, color, image_url, stock, featured) " +
+                    " VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+            try (PreparedStatement statement = connection.prepareStatement(sql))
+            {
+                for (Product p : BenchmarkData.products(products))
+                {
+                    statement.setString(1, p.getName());
+                    statement.setBigDecimal(2, p.getPrice());
+                    statement.setInt(3, p.getCategoryId());
+                    statement.setString(4, p.getDescription());
+                    statement.setString(5, p.getColor());
+                    statement.setString(6, p.getImageUrl());
+                    statement.setInt(7, p.getStock());
+                    statement.setBoolean(8, p.isFeatured());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.yearup.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.yearup.models.ShoppingCart;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShoppingCartBenchmark
+{
+    @Param({ "5", "50" })
+    public int lines;
+
+    private ShoppingCart cart;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        cart = BenchmarkData.cart(lines);
+    }
+
+    @Benchmark
+    public BigDecimal getTotal()
+    {
+        return cart.getTotal();
+    }
+}
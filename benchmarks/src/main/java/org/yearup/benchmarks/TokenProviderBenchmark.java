@@ -0,0 +1,62 @@
+package org.yearup.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.yearup.data.cache.CacheRegistry;
+import org.yearup.security.jwt.TokenProvider;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issuing and verifying JWTs. resolveAuthentication is the path the JWTFilter
+ * takes on every request, and is measured with the verified-token cache warm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenProviderBenchmark
+{
+    private TokenProvider tokenProvider;
+    private Authentication authentication;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        byte[] secret = new byte[64];
+        new Random(42).nextBytes(secret);
+
+        tokenProvider = new TokenProvider(Base64.getEncoder().encodeToString(secret), 3600, 10_000, 300, new CacheRegistry());
+        tokenProvider.afterPropertiesSet();
+
+        authentication = new UsernamePasswordAuthenticationToken("user", "password",
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        token = tokenProvider.createToken(authentication, false);
+    }
+
+    @Benchmark
+    public String createToken()
+    {
+        return tokenProvider.createToken(authentication, false);
+    }
+
+    @Benchmark
+    public Authentication getAuthentication()
+    {
+        return tokenProvider.getAuthentication(token);
+    }
+
+    @Benchmark
+    public Authentication resolveAuthenticationCached()
+    {
+        return tokenProvider.resolveAuthentication(token);
+    }
+}
@@ -0,0 +1,204 @@
+package org.yearup.benchmarks;
+
+import org.yearup.configurations.InstrumentedDataSource;
+import org.yearup.configurations.VirtualThreads;
+import org.yearup.metrics.LatencyHistogram;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Not a JMH benchmark: a closed-loop load test that compares Tomcat's default
+ * 200 platform threads with one virtual thread per request, both in front of
+ * the same gated InstrumentedDataSource.
+ *
+ * Every simulated request does some work without a connection (auth, caches,
+ * JSON) and then a query that holds its connection for the configured database
+ * latency. With --pinned the latency is spent inside a synchronized block, the
+ * way Connector/J 8.0 does its socket reads.
+ *
+ *   java -cp target/benchmarks.jar org.yearup.benchmarks.VirtualThreadLoadTest \
+ *        [--requests 20000] [--concurrency 2000] [--pool 20] [--db-millis 5] [--app-millis 20] [--pinned]
+ *        [--carrier-permits]
+ *
+ * The virtual-thread run gets one permit per pooled connection, as the
+ * application does by default; --carrier-permits gives it one fewer permit
+ * than there are carrier threads instead. The virtual-thread run is skipped on
+ * JVMs older than 21.
+ */
+public class VirtualThreadLoadTest
+{
+    private int requests = 20_000;
+    private int concurrency = 2_000;
+    private int poolSize = 20;
+    private long dbMillis = 5;
+    private long appMillis = 20;
+    private boolean pinned;
+    private boolean carrierPermits;
+
+    public static void main(String[] args) throws Exception
+    {
+        VirtualThreadLoadTest test = new VirtualThreadLoadTest();
+        test.parse(args);
+
+        System.out.printf("%d requests, %d concurrent clients, pool of %d, %d ms in the database, %d ms outside it%s%n%n",
+                          test.requests, test.concurrency, test.poolSize, test.dbMillis, test.appMillis,
+                          test.pinned ? ", pinned" : "");
+        System.out.printf("%-10s %10s %12s %10s %10s %10s %10s%n",
+                          "threads", "req/s", "in flight", "p50 ms", "p99 ms", "max ms", "failed");
+
+        test.run("platform", Executors.newFixedThreadPool(200), test.poolSize);
+
+        if (VirtualThreads.isSupported())
+            test.run("virtual", VirtualThreads.newThreadPerTaskExecutor("load-vt-"),
+                     test.carrierPermits ? Math.min(test.poolSize, Math.max(1, VirtualThreads.carrierThreads() - 1)) : test.poolSize);
+        else
+            System.out.printf("%-10s skipped, Java %d has no virtual threads%n", "virtual", Runtime.version().feature());
+    }
+
+    private void parse(String[] args)
+    {
+        for (int i = 0; i < args.length; i++)
+        {
+            switch (args[i])
+            {
+                case "--requests": requests = Integer.parseInt(args[++i]); break;
+                case "--concurrency": concurrency = Integer.parseInt(args[++i]); break;
+                case "--pool": poolSize = Integer.parseInt(args[++i]); break;
+                case "--db-millis": dbMillis = Long.parseLong(args[++i]); break;
+                case "--app-millis": appMillis = Long.parseLong(args[++i]); break;
+                case "--pinned": pinned = true; break;
+                case "--carrier-permits": carrierPermits = true; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+    }
+
+    private void run(String name, ExecutorService executor, int permits) throws Exception
+    {
+        InstrumentedDataSource dataSource = dataSource(permits);
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder failures = new LongAdder();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peakInFlight = new AtomicInteger();
+
+        // each client sends its next request as soon as the previous one completes
+        AtomicInteger remaining = new AtomicInteger(requests);
+        CountDownLatch done = new CountDownLatch(concurrency);
+        long start = System.nanoTime();
+        for (int client = 0; client < concurrency; client++)
+        {
+            executor.execute(() -> {
+                try
+                {
+                    while (remaining.getAndDecrement() > 0)
+                    {
+                        long requestStart = System.nanoTime();
+                        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                        try
+                        {
+                            handleRequest(dataSource);
+                        }
+                        catch (SQLException | RuntimeException e)
+                        {
+                            failures.increment();
+                        }
+                        finally
+                        {
+                            inFlight.decrementAndGet();
+                            latency.record(System.nanoTime() - requestStart);
+                        }
+                    }
+                }
+                finally
+                {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        dataSource.close();
+
+        System.out.printf("%-10s %10.0f %12d %10.1f %10.1f %10.1f %10d%n",
+                          name,
+                          latency.getCount() / (elapsed / 1_000_000_000.0),
+                          peakInFlight.get(),
+                          latency.getValueAtPercentile(50) / 1_000_000.0,
+                          latency.getValueAtPercentile(99) / 1_000_000.0,
+                          latency.getMax() / 1_000_000.0,
+                          failures.sum());
+    }
+
+    private void handleRequest(InstrumentedDataSource dataSource) throws SQLException
+    {
+        sleep(appMillis);
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM products WHERE category_id = ?"))
+        {
+            statement.setInt(1, 1);
+            try (ResultSet row = statement.executeQuery())
+            {
+                row.next();
+            }
+
+            if (pinned)
+            {
+                synchronized (connection)
+                {
+                    sleep(dbMillis);
+                }
+            }
+            else
+            {
+                sleep(dbMillis);
+            }
+        }
+    }
+
+    private InstrumentedDataSource dataSource(int permits) throws SQLException
+    {
+        InstrumentedDataSource dataSource = new InstrumentedDataSource();
+        dataSource.setUrl("jdbc:h2:mem:loadtest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSource.setPassword("");
+        dataSource.setMaxTotal(poolSize);
+        dataSource.setMaxIdle(poolSize);
+        dataSource.setMaxWaitMillis(30_000);
+        dataSource.limitConcurrentBorrows(permits);
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement())
+        {
+            statement.execute("CREATE TABLE IF NOT EXISTS products (product_id INT PRIMARY KEY, category_id INT)");
+            statement.execute("MERGE INTO products KEY (product_id) VALUES (1, 1), (2, 1), (3, 2)");
+        }
+        return dataSource;
+    }
+
+    private static void sleep(long millis)
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.yearup.data.mysql;
+
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.yearup.benchmarks.BenchmarkData;
+import org.yearup.models.Product;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MySqlProductDao.mapRow over an in-memory ResultSet, so only the mapping is measured.
+ * Lives in the DAO's package because mapRow is not public.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductMappingBenchmark
+{
+    @Param({ "100", "10000" })
+    public int rows;
+
+    private SimpleResultSet resultSet;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        resultSet = new SimpleResultSet();
+        resultSet.addColumn("product_id", Types.INTEGER, 10, 0);
+        resultSet.addColumn("name", Types.VARCHAR, 100, 0);
+        resultSet.addColumn("price", Types.DECIMAL, 10, 2);
+        resultSet.addColumn("category_id", Types.INTEGER, 10, 0);
+        resultSet.addColumn("description", Types.VARCHAR, 1000, 0);
+        resultSet.addColumn("color", Types.VARCHAR, 20, 0);
+        resultSet.addColumn("image_url", Types.VARCHAR, 200, 0);
+        resultSet.addColumn("stock", Types.INTEGER, 10, 0);
+        resultSet.addColumn("featured", Types.BOOLEAN, 1, 0);
+
+        List<Product> products = BenchmarkData.products(rows);
+        for (Product p : products)
+        {
+            resultSet.addRow(p.getProductId(), p.getName(), p.getPrice(), p.getCategoryId(), p.getDescription(),
+                             p.getColor(), p.getImageUrl(), p.getStock(), p.isFeatured());
+        }
+        resultSet.setAutoClose(false);
+    }
+
+    @Benchmark
+    public void mapAllRows(Blackhole blackhole) throws SQLException
+    {
+        resultSet.beforeFirst();
+        while (resultSet.next())
+        {
+            blackhole.consume(MySqlProductDao.mapRow(resultSet));
+        }
+    }
+}
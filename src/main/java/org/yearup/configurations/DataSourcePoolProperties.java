@@ -0,0 +1,208 @@
+package org.yearup.configurations;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Connection pool settings, bound from the datasource.pool.* properties.
+ * The defaults are sized for a single application node.
+ */
+@Component
+@ConfigurationProperties(prefix = "datasource.pool")
+public class DataSourcePoolProperties
+{
+    private int initialSize = 2;
+    private int maxTotal = 20;
+    private int maxIdle = 10;
+    private int minIdle = 2;
+    private long maxWaitMillis = 5000;
+
+    private boolean poolPreparedStatements = true;
+    private int maxOpenPreparedStatements = 100;
+
+    private boolean testOnBorrow = false;
+    private boolean testWhileIdle = true;
+    private int validationQueryTimeoutSeconds = 2;
+    private long timeBetweenEvictionRunsMillis = 30_000;
+    private long minEvictableIdleTimeMillis = 60_000;
+    private long maxConnLifetimeMillis = 30 * 60_000;
+
+    private long leakDetectionThresholdMillis = 60_000;
+    // a stack trace per borrow is costly on the hot path; turn it on to find where a reported leak was borrowed
+    private boolean leakDetectionCaptureStacks = false;
+
+    // 0 = no semaphore in front of the pool (or the virtual-thread default, see DatabaseConfig)
+    private int borrowPermits = 0;
+    // with virtual threads and no explicit borrowPermits: one fewer permit than carrier threads instead of maxTotal
+    private boolean carrierSizedBorrowPermits = false;
+
+    public int getInitialSize()
+    {
+        return initialSize;
+    }
+
+    public void setInitialSize(int initialSize)
+    {
+        this.initialSize = initialSize;
+    }
+
+    public int getMaxTotal()
+    {
+        return maxTotal;
+    }
+
+    public void setMaxTotal(int maxTotal)
+    {
+        this.maxTotal = maxTotal;
+    }
+
+    public int getMaxIdle()
+    {
+        return maxIdle;
+    }
+
+    public void setMaxIdle(int maxIdle)
+    {
+        this.maxIdle = maxIdle;
+    }
+
+    public int getMinIdle()
+    {
+        return minIdle;
+    }
+
+    public void setMinIdle(int minIdle)
+    {
+        this.minIdle = minIdle;
+    }
+
+    public long getMaxWaitMillis()
+    {
+        return maxWaitMillis;
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis)
+    {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public boolean isPoolPreparedStatements()
+    {
+        return poolPreparedStatements;
+    }
+
+    public void setPoolPreparedStatements(boolean poolPreparedStatements)
+    {
+        this.poolPreparedStatements = poolPreparedStatements;
+    }
+
+    public int getMaxOpenPreparedStatements()
+    {
+        return maxOpenPreparedStatements;
+    }
+
+    public void setMaxOpenPreparedStatements(int maxOpenPreparedStatements)
+    {
+        this.maxOpenPreparedStatements = maxOpenPreparedStatements;
+    }
+
+    public boolean isTestOnBorrow()
+    {
+        return testOnBorrow;
+    }
+
+    public void setTestOnBorrow(boolean testOnBorrow)
+    {
+        this.testOnBorrow = testOnBorrow;
+    }
+
+    public boolean isTestWhileIdle()
+    {
+        return testWhileIdle;
+    }
+
+    public void setTestWhileIdle(boolean testWhileIdle)
+    {
+        this.testWhileIdle = testWhileIdle;
+    }
+
+    public int getValidationQueryTimeoutSeconds()
+    {
+        return validationQueryTimeoutSeconds;
+    }
+
+    public void setValidationQueryTimeoutSeconds(int validationQueryTimeoutSeconds)
+    {
+        this.validationQueryTimeoutSeconds = validationQueryTimeoutSeconds;
+    }
+
+    public long getTimeBetweenEvictionRunsMillis()
+    {
+        return timeBetweenEvictionRunsMillis;
+    }
+
+    public void setTimeBetweenEvictionRunsMillis(long timeBetweenEvictionRunsMillis)
+    {
+        this.timeBetweenEvictionRunsMillis = timeBetweenEvictionRunsMillis;
+    }
+
+    public long getMinEvictableIdleTimeMillis()
+    {
+        return minEvictableIdleTimeMillis;
+    }
+
+    public void setMinEvictableIdleTimeMillis(long minEvictableIdleTimeMillis)
+    {
+        this.minEvictableIdleTimeMillis = minEvictableIdleTimeMillis;
+    }
+
+    public long getMaxConnLifetimeMillis()
+    {
+        return maxConnLifetimeMillis;
+    }
+
+    public void setMaxConnLifetimeMillis(long maxConnLifetimeMillis)
+    {
+        this.maxConnLifetimeMillis = maxConnLifetimeMillis;
+    }
+
+    public long getLeakDetectionThresholdMillis()
+    {
+        return leakDetectionThresholdMillis;
+    }
+
+    public void setLeakDetectionThresholdMillis(long leakDetectionThresholdMillis)
+    {
+        this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+    }
+
+    public boolean isLeakDetectionCaptureStacks()
+    {
+        return leakDetectionCaptureStacks;
+    }
+
+    public void setLeakDetectionCaptureStacks(boolean leakDetectionCaptureStacks)
+    {
+        this.leakDetectionCaptureStacks = leakDetectionCaptureStacks;
+    }
+
+    public int getBorrowPermits()
+    {
+        return borrowPermits;
+    }
+
+    public void setBorrowPermits(int borrowPermits)
+    {
+        this.borrowPermits = borrowPermits;
+    }
+
+    public boolean isCarrierSizedBorrowPermits()
+    {
+        return carrierSizedBorrowPermits;
+    }
+
+    public void setCarrierSizedBorrowPermits(boolean carrierSizedBorrowPermits)
+    {
+        this.carrierSizedBorrowPermits = carrierSizedBorrowPermits;
+    }
+}
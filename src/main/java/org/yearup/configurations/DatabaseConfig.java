@@ -1,6 +1,5 @@
 package org.yearup.configurations;
 
-import org.apache.commons.dbcp2.BasicDataSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -9,10 +8,10 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class DatabaseConfig
 {
-    private BasicDataSource basicDataSource;
+    private InstrumentedDataSource basicDataSource;
 
     @Bean
-    public BasicDataSource dataSource()
+    public InstrumentedDataSource dataSource()
     {
         return basicDataSource;
     }
@@ -20,12 +19,58 @@ public class DatabaseConfig
     @Autowired
     public DatabaseConfig(@Value("${datasource.url}") String url,
                           @Value("${datasource.username}") String username,
-                          @Value("${datasource.password}") String password)
+                          @Value("${datasource.password}") String password,
+                          @Value("${datasource.rewrite-batched-statements:true}") boolean rewriteBatchedStatements,
+                          @Value("${server.virtual-threads.enabled:false}") boolean virtualThreads,
+                          DataSourcePoolProperties pool)
     {
-        basicDataSource = new BasicDataSource();
+        basicDataSource = new InstrumentedDataSource();
         basicDataSource.setUrl(url);
         basicDataSource.setUsername(username);
         basicDataSource.setPassword(password);
+
+        // lets Connector/J send a JDBC batch of INSERTs as one multi-row INSERT
+        basicDataSource.addConnectionProperty("rewriteBatchedStatements", String.valueOf(rewriteBatchedStatements));
+
+        // pool size
+        basicDataSource.setInitialSize(pool.getInitialSize());
+        basicDataSource.setMaxTotal(pool.getMaxTotal());
+        basicDataSource.setMaxIdle(pool.getMaxIdle());
+        basicDataSource.setMinIdle(pool.getMinIdle());
+        basicDataSource.setMaxWaitMillis(pool.getMaxWaitMillis());
+
+        // prepared statements are cached per connection
+        basicDataSource.setPoolPreparedStatements(pool.isPoolPreparedStatements());
+        basicDataSource.setMaxOpenPreparedStatements(pool.getMaxOpenPreparedStatements());
+
+        // without a validation query DBCP validates with Connection.isValid(), which is a cheap ping
+        basicDataSource.setTestOnBorrow(pool.isTestOnBorrow());
+        basicDataSource.setTestWhileIdle(pool.isTestWhileIdle());
+        basicDataSource.setValidationQueryTimeout(pool.getValidationQueryTimeoutSeconds());
+        basicDataSource.setTimeBetweenEvictionRunsMillis(pool.getTimeBetweenEvictionRunsMillis());
+        basicDataSource.setMinEvictableIdleTimeMillis(pool.getMinEvictableIdleTimeMillis());
+        basicDataSource.setMaxConnLifetimeMillis(pool.getMaxConnLifetimeMillis());
+
+        basicDataSource.enableLeakDetection(pool.getLeakDetectionThresholdMillis(), pool.isLeakDetectionCaptureStacks());
+
+        basicDataSource.limitConcurrentBorrows(borrowPermits(pool, virtualThreads));
+    }
+
+    // Tomcat's thread pool bounds the callers on platform threads, so the gate is only
+    // on when asked for. Virtual threads have no such bound, so by default they get one
+    // permit per pooled connection: waiting for a connection then happens on the
+    // semaphore, where a virtual thread unmounts, and not inside DBCP. Connector/J 8.0
+    // does its socket I/O inside synchronized blocks, which pins the carrier thread;
+    // carrier-sized-borrow-permits keeps one carrier free of JDBC, at the cost of
+    // allowing fewer queries at once than the pool has connections.
+    private static int borrowPermits(DataSourcePoolProperties pool, boolean virtualThreads)
+    {
+        if (pool.getBorrowPermits() > 0 || !virtualThreads || !VirtualThreads.isSupported())
+            return pool.getBorrowPermits();
+
+        if (pool.isCarrierSizedBorrowPermits())
+            return Math.min(pool.getMaxTotal(), Math.max(1, VirtualThreads.carrierThreads() - 1));
+        return pool.getMaxTotal();
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,264 @@
+package org.yearup.configurations;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.yearup.metrics.LatencyHistogram;
+import org.yearup.models.ConnectionPoolStats;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A DBCP2 pool that measures how long callers wait for a connection and
+ * reports connections that are held longer than the leak detection threshold,
+ * together with the stack trace of the code that borrowed them.
+ *
+ * Borrowing can also be gated by a fair semaphore, which caps how many threads
+ * are inside the pool and the driver at once. With virtual threads there is no
+ * thread pool left to do that, and every thread past the cap waits on the
+ * semaphore - which unmounts it - instead of in DBCP's and Connector/J's
+ * synchronized code, which would pin its carrier thread.
+ */
+public class InstrumentedDataSource extends BasicDataSource
+{
+    private static final Logger LOG = LoggerFactory.getLogger(InstrumentedDataSource.class);
+
+    private final LatencyHistogram waitTimes = new LatencyHistogram();
+    private final LongAdder borrowFailures = new LongAdder();
+    private final LongAdder leaksReported = new LongAdder();
+
+    private final AtomicLong borrowIds = new AtomicLong();
+    private final Map<Long, Borrow> borrowed = new ConcurrentHashMap<>();
+
+    private long leakThresholdNanos;
+    private boolean captureStacks;
+    private ScheduledExecutorService leakDetector;
+    private Semaphore borrowPermits;
+    private final LongAdder permitTimeouts = new LongAdder();
+
+    /**
+     * Starts checking for leaked connections every few seconds.
+     * A threshold of zero or less turns leak detection off.
+     */
+    public void enableLeakDetection(long thresholdMillis, boolean captureStacks)
+    {
+        if (thresholdMillis <= 0)
+            return;
+
+        this.leakThresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.captureStacks = captureStacks;
+
+        long period = Math.max(1000, thresholdMillis / 4);
+        leakDetector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-leak-detector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        leakDetector.scheduleAtFixedRate(this::reportLeaks, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Lets at most the given number of connections be borrowed at once. A caller
+     * that gets no permit within maxWaitMillis fails the same way as one that
+     * times out waiting in the pool. Zero or less leaves borrowing ungated.
+     */
+    public void limitConcurrentBorrows(int permits)
+    {
+        this.borrowPermits = permits > 0 ? new Semaphore(permits, true) : null;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        long start = System.nanoTime();
+        Connection connection;
+        try
+        {
+            acquirePermit();
+            try
+            {
+                connection = super.getConnection();
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                if (borrowPermits != null)
+                    borrowPermits.release();
+                throw e;
+            }
+        }
+        catch (SQLException e)
+        {
+            borrowFailures.increment();
+            throw e;
+        }
+        finally
+        {
+            waitTimes.record(System.nanoTime() - start);
+        }
+
+        if (leakDetector == null && borrowPermits == null)
+            return connection;
+        return track(connection);
+    }
+
+    private void acquirePermit() throws SQLException
+    {
+        if (borrowPermits == null)
+            return;
+
+        try
+        {
+            if (!borrowPermits.tryAcquire(getMaxWaitMillis(), TimeUnit.MILLISECONDS))
+            {
+                permitTimeouts.increment();
+                throw new SQLException("Timed out waiting for a connection permit");
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a connection permit", e);
+        }
+    }
+
+    // BasicDataSource.close() is synchronized already; this override holds no monitor of its own
+    @Override
+    public void close() throws SQLException
+    {
+        if (leakDetector != null)
+            leakDetector.shutdownNow();
+        super.close();
+    }
+
+    public ConnectionPoolStats getStats()
+    {
+        ConnectionPoolStats stats = new ConnectionPoolStats();
+        stats.setActive(getNumActive());
+        stats.setIdle(getNumIdle());
+        stats.setMaxTotal(getMaxTotal());
+        stats.setBorrowCount(waitTimes.getCount());
+        stats.setBorrowFailures(borrowFailures.sum());
+        stats.setWaitMeanMillis(waitTimes.getMean() / 1_000_000.0);
+        stats.setWaitP50Millis(waitTimes.getValueAtPercentile(50) / 1_000_000.0);
+        stats.setWaitP99Millis(waitTimes.getValueAtPercentile(99) / 1_000_000.0);
+        stats.setWaitMaxMillis(waitTimes.getMax() / 1_000_000.0);
+        stats.setSuspectedLeaks(countSuspectedLeaks());
+        stats.setLeaksReported(leaksReported.sum());
+        stats.setBorrowPermitsAvailable(borrowPermits == null ? -1 : borrowPermits.availablePermits());
+        stats.setBorrowPermitWaiters(borrowPermits == null ? 0 : borrowPermits.getQueueLength());
+        stats.setBorrowPermitTimeouts(permitTimeouts.sum());
+        return stats;
+    }
+
+    public LatencyHistogram getWaitTimes()
+    {
+        return waitTimes;
+    }
+
+    private Connection track(Connection connection)
+    {
+        long id = 0;
+        if (leakDetector != null)
+        {
+            id = borrowIds.incrementAndGet();
+            Throwable stack = captureStacks ? new Throwable("Connection borrowed here") : null;
+            borrowed.put(id, new Borrow(Thread.currentThread().getName(), System.nanoTime(), stack));
+        }
+
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new TrackingHandler(connection, id));
+    }
+
+    private int countSuspectedLeaks()
+    {
+        long now = System.nanoTime();
+        int leaks = 0;
+        for (Borrow borrow : borrowed.values())
+        {
+            if (now - borrow.borrowedAt > leakThresholdNanos)
+                leaks++;
+        }
+        return leaks;
+    }
+
+    private void reportLeaks()
+    {
+        long now = System.nanoTime();
+        for (Borrow borrow : borrowed.values())
+        {
+            if (now - borrow.borrowedAt > leakThresholdNanos && borrow.reported.compareAndSet(false, true))
+            {
+                leaksReported.increment();
+                LOG.warn("Connection borrowed by thread '{}' has been held for {} ms - possible leak",
+                         borrow.threadName, TimeUnit.NANOSECONDS.toMillis(now - borrow.borrowedAt), borrow.stack);
+            }
+        }
+    }
+
+    private static final class Borrow
+    {
+        private final String threadName;
+        private final long borrowedAt;
+        private final Throwable stack;
+        private final AtomicBoolean reported = new AtomicBoolean();
+
+        private Borrow(String threadName, long borrowedAt, Throwable stack)
+        {
+            this.threadName = threadName;
+            this.borrowedAt = borrowedAt;
+            this.stack = stack;
+        }
+    }
+
+    private final class TrackingHandler implements InvocationHandler
+    {
+        private final Connection connection;
+        private final long id;
+        private final Semaphore permits;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private TrackingHandler(Connection connection, long id)
+        {
+            this.connection = connection;
+            this.id = id;
+            this.permits = borrowPermits;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            // close may be called more than once; only the first one gives the permit back
+            if ("close".equals(method.getName()) && closed.compareAndSet(false, true))
+            {
+                borrowed.remove(id);
+                if (permits != null)
+                    permits.release();
+            }
+
+            try
+            {
+                return method.invoke(connection, args);
+            }
+            catch (InvocationTargetException e)
+            {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.yearup.configurations;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual-thread executors when the JVM has them (Java 21 and later).
+ * The project compiles for Java 17, so the API is looked up reflectively and
+ * callers fall back to platform threads when it is missing.
+ */
+public final class VirtualThreads
+{
+    private VirtualThreads()
+    {
+    }
+
+    public static boolean isSupported()
+    {
+        try
+        {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        }
+        catch (NoSuchMethodException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Equivalent to Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory()).
+     *
+     * @return the executor, or null when this JVM has no virtual threads
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix)
+    {
+        if (!isSupported())
+            return null;
+
+        try
+        {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+
+            Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, factory);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Virtual threads are present but could not be created", e);
+        }
+    }
+
+    /**
+     * Virtual threads run on a ForkJoinPool of carrier threads, one per core
+     * unless jdk.virtualThreadScheduler.parallelism says otherwise.
+     */
+    public static int carrierThreads()
+    {
+        String parallelism = System.getProperty("jdk.virtualThreadScheduler.parallelism");
+        if (parallelism != null)
+        {
+            try
+            {
+                return Math.max(1, Integer.parseInt(parallelism.trim()));
+            }
+            catch (NumberFormatException ignored)
+            {
+                // the JVM ignores a malformed value as well
+            }
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+}
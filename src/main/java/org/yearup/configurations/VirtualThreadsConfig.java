@@ -0,0 +1,69 @@
+package org.yearup.configurations;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Opt-in (server.virtual-threads.enabled=true): Tomcat runs every request on
+ * its own virtual thread instead of a thread from its 200-thread pool, and so
+ * does the async half of streamed responses. The DAOs run on the request
+ * thread, so their blocking JDBC calls park a virtual thread rather than hold
+ * a platform one; DatabaseConfig gates the pool so they cannot overrun it.
+ *
+ * On a JVM without virtual threads a warning is logged and nothing changes.
+ */
+@Configuration
+@ConditionalOnProperty(name = "server.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadsConfig implements WebMvcConfigurer, DisposableBean
+{
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreadsConfig.class);
+
+    private final ExecutorService requestExecutor;
+    private final ExecutorService asyncExecutor;
+
+    public VirtualThreadsConfig()
+    {
+        requestExecutor = VirtualThreads.newThreadPerTaskExecutor("http-vt-");
+        asyncExecutor = VirtualThreads.newThreadPerTaskExecutor("mvc-async-vt-");
+
+        if (requestExecutor == null)
+            LOG.warn("server.virtual-threads.enabled is set but Java {} has no virtual threads; using platform threads",
+                     Runtime.version().feature());
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer()
+    {
+        return protocolHandler -> {
+            if (requestExecutor != null)
+                protocolHandler.setExecutor(requestExecutor);
+        };
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer)
+    {
+        if (asyncExecutor != null)
+            configurer.setTaskExecutor(new ConcurrentTaskExecutor(asyncExecutor));
+    }
+
+    @Override
+    public void destroy()
+    {
+        // Tomcat does not shut down an executor it was handed
+        if (requestExecutor != null)
+            requestExecutor.shutdown();
+        if (asyncExecutor != null)
+            asyncExecutor.shutdown();
+    }
+}
@@ -0,0 +1,37 @@
+package org.yearup.configurations;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.yearup.metrics.MetricsRegistry;
+import org.yearup.metrics.RequestMetricsInterceptor;
+import org.yearup.metrics.ResponseSizeFilter;
+
+@Configuration
+public class WebMetricsConfig implements WebMvcConfigurer
+{
+    private final MetricsRegistry metricsRegistry;
+
+    public WebMetricsConfig(MetricsRegistry metricsRegistry)
+    {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry)
+    {
+        registry.addInterceptor(new RequestMetricsInterceptor(metricsRegistry));
+    }
+
+    @Bean
+    public FilterRegistrationBean<ResponseSizeFilter> responseSizeFilter()
+    {
+        // outermost, so bytes written by the security filters are counted as well
+        FilterRegistrationBean<ResponseSizeFilter> registration = new FilterRegistrationBean<>(new ResponseSizeFilter());
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
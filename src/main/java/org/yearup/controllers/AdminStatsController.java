@@ -0,0 +1,76 @@
+package org.yearup.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.yearup.configurations.InstrumentedDataSource;
+import org.yearup.data.cache.CacheRegistry;
+import org.yearup.metrics.LatencyHistogram;
+import org.yearup.models.CacheStats;
+import org.yearup.models.ConnectionPoolStats;
+import org.yearup.models.PasswordHashingStats;
+import org.yearup.security.PasswordHashingExecutor;
+import org.yearup.security.TimedPasswordEncoder;
+
+import java.util.List;
+
+// runtime statistics for sizing and tuning, only visible to admins
+@RestController
+@RequestMapping("admin/stats")
+@CrossOrigin
+@PreAuthorize("hasRole('ROLE_ADMIN')")
+public class AdminStatsController
+{
+    private InstrumentedDataSource dataSource;
+    private CacheRegistry cacheRegistry;
+    private PasswordHashingExecutor passwordHashingExecutor;
+    private TimedPasswordEncoder passwordEncoder;
+
+    @Autowired
+    public AdminStatsController(InstrumentedDataSource dataSource,
+                                CacheRegistry cacheRegistry,
+                                PasswordHashingExecutor passwordHashingExecutor,
+                                TimedPasswordEncoder passwordEncoder)
+    {
+        this.dataSource = dataSource;
+        this.cacheRegistry = cacheRegistry;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    @GetMapping("pool")
+    public ConnectionPoolStats getPoolStats()
+    {
+        return dataSource.getStats();
+    }
+
+    @GetMapping("caches")
+    public List<CacheStats> getCacheStats()
+    {
+        return cacheRegistry.getStats();
+    }
+
+    @GetMapping("hashing")
+    public PasswordHashingStats getHashingStats()
+    {
+        LatencyHistogram hashTimes = passwordEncoder.getEncodeTimes();
+        LatencyHistogram verifyTimes = passwordEncoder.getMatchTimes();
+
+        PasswordHashingStats stats = new PasswordHashingStats();
+        stats.setPoolSize(passwordHashingExecutor.getPoolSize());
+        stats.setActive(passwordHashingExecutor.getActiveCount());
+        stats.setQueueDepth(passwordHashingExecutor.getQueueDepth());
+        stats.setQueueCapacity(passwordHashingExecutor.getQueueCapacity());
+        stats.setCompleted(passwordHashingExecutor.getCompletedCount());
+        stats.setRejected(passwordHashingExecutor.getRejectedCount());
+        stats.setHashCount(hashTimes.getCount());
+        stats.setHashP50Millis(hashTimes.getValueAtPercentile(50) / 1_000_000.0);
+        stats.setHashP99Millis(hashTimes.getValueAtPercentile(99) / 1_000_000.0);
+        stats.setHashMaxMillis(hashTimes.getMax() / 1_000_000.0);
+        stats.setVerifyCount(verifyTimes.getCount());
+        stats.setVerifyP50Millis(verifyTimes.getValueAtPercentile(50) / 1_000_000.0);
+        stats.setVerifyP99Millis(verifyTimes.getValueAtPercentile(99) / 1_000_000.0);
+        stats.setVerifyMaxMillis(verifyTimes.getMax() / 1_000_000.0);
+        return stats;
+    }
+}
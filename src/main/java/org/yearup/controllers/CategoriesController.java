@@ -4,12 +4,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.yearup.data.CategoryDao;
 import org.yearup.data.ProductDao;
+import org.yearup.data.catalog.CatalogVersions;
+import org.yearup.data.catalog.ProductViews;
 import org.yearup.models.Category;
 import org.yearup.models.Product;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -23,21 +27,34 @@ import java.util.List;
 @CrossOrigin// allows requests from different origins
 public class CategoriesController
 {
+    private static final int MAX_IN_STOCK_RESULTS = 500;
+
     private CategoryDao categoryDao;
     private ProductDao productDao;
+    private ProductJsonStreamer productJsonStreamer;
+    private CatalogVersions catalogVersions;
+    private ProductViews productViews;
 
 
     // create an Autowired controller to inject the categoryDao and ProductDao
     @Autowired
-    public CategoriesController(CategoryDao categoryDao, ProductDao productDao) {
+    public CategoriesController(CategoryDao categoryDao, ProductDao productDao, ProductJsonStreamer productJsonStreamer,
+                                CatalogVersions catalogVersions, ProductViews productViews) {
         this.categoryDao = categoryDao;
         this.productDao = productDao;
+        this.productJsonStreamer = productJsonStreamer;
+        this.catalogVersions = catalogVersions;
+        this.productViews = productViews;
     }
     // add the appropriate annotation for a get action
     @GetMapping()//maps HTTP GET requests to retrieve all categories
     @PreAuthorize("permitAll()")//allows any user to access the endpoints.
-    public List<Category> getAll()
+    public List<Category> getAll(WebRequest request)
     {
+        // answered with a 304 when the client's ETag is still current
+        if (ConditionalRequests.notModified(catalogVersions.categories(), request))
+            return null;
+
         // find and return all categories
         return categoryDao.getAllCategories();
     }
@@ -46,7 +63,10 @@ public class CategoriesController
     @GetMapping("/{id}")//HTTP GET requests with a path variable (id)
     @PreAuthorize("permitAll()")// any user to access endpoint
 
-    public ResponseEntity<Category> getById(@PathVariable int id) {
+    public ResponseEntity<Category> getById(@PathVariable int id, WebRequest request) {
+        if (ConditionalRequests.notModified(catalogVersions.category(id), request))
+            return null;
+
         Category category = categoryDao.getById(id);
 
         if (category == null) {
@@ -61,10 +81,37 @@ public class CategoriesController
 
     @GetMapping("{categoryId}/products")
     @PreAuthorize("permitAll()")//
-    public List<Product> getProductsById(@PathVariable int categoryId)
+    public ResponseEntity<byte[]> getProductsById(@PathVariable int categoryId, WebRequest request)
+    {
+        if (ConditionalRequests.notModified(catalogVersions.products(), request))
+            return null;
+
+        // the products of the category, written as JSON without building a list of Products
+        return productJsonStreamer.write(generator -> productDao.writeByCategoryIdJson(categoryId, generator));
+    }
+
+    // only the products that can still be ordered, read from the in-stock view
+    @GetMapping("{categoryId}/products/in-stock")
+    @PreAuthorize("permitAll()")
+    public List<Product> getInStockProductsById(@PathVariable int categoryId,
+                                                @RequestParam(name = "limit", defaultValue = "100") int limit,
+                                                WebRequest request)
+    {
+        if (ConditionalRequests.notModified(catalogVersions.products(), request))
+            return null;
+
+        if (limit < 1 || limit > MAX_IN_STOCK_RESULTS)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_IN_STOCK_RESULTS);
+
+        return productViews.inStock(categoryId, limit);
+    }
+
+    // streaming mode: products are written to the response as they are read
+    @GetMapping(value = "{categoryId}/products", params = "stream=true")
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<StreamingResponseBody> streamProductsById(@PathVariable int categoryId)
     {
-        // get a list of product by categoryId
-        return productDao.listByCategoryId(categoryId);
+        return productJsonStreamer.stream(generator -> productDao.writeByCategoryIdJson(categoryId, generator));
     }
 
     // add annotation to call this method for a POST action
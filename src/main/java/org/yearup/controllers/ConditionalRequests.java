@@ -0,0 +1,37 @@
+package org.yearup.controllers;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.yearup.data.catalog.CatalogVersions;
+
+/**
+ * Answers conditional GETs from the catalog version counters.
+ */
+final class ConditionalRequests
+{
+    private ConditionalRequests()
+    {
+    }
+
+    /**
+     * Sets the ETag and Last-Modified headers and returns true, with the response
+     * status already set to 304, when the client's copy is still current. The
+     * caller then returns null without reading or serializing anything.
+     */
+    static boolean notModified(CatalogVersions.Version version, WebRequest request)
+    {
+        // Spring Security sends "no-store" unless a Cache-Control header is already set;
+        // "no-cache" lets clients and the CDN keep the response and revalidate it with the ETag
+        if (request instanceof ServletWebRequest)
+        {
+            HttpServletResponse response = ((ServletWebRequest) request).getResponse();
+            if (response != null && !response.containsHeader(HttpHeaders.CACHE_CONTROL))
+                response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        }
+
+        return request.checkNotModified(version.getEtag(), version.getLastModified());
+    }
+}
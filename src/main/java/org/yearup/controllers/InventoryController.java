@@ -0,0 +1,39 @@
+package org.yearup.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.yearup.data.catalog.ProductViews;
+import org.yearup.models.Product;
+
+import java.util.List;
+
+// stock levels for restocking, only visible to admins
+@RestController
+@RequestMapping("admin/inventory")
+@CrossOrigin
+@PreAuthorize("hasRole('ROLE_ADMIN')")
+public class InventoryController
+{
+    private static final int MAX_RESULTS = 1000;
+
+    private ProductViews productViews;
+
+    @Autowired
+    public InventoryController(ProductViews productViews)
+    {
+        this.productViews = productViews;
+    }
+
+    // products below inventory.low-stock-threshold, lowest stock first
+    @GetMapping("low-stock")
+    public List<Product> getLowStock(@RequestParam(name = "limit", defaultValue = "100") int limit)
+    {
+        if (limit < 1 || limit > MAX_RESULTS)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_RESULTS);
+
+        return productViews.lowStock(limit);
+    }
+}
@@ -0,0 +1,30 @@
+package org.yearup.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.yearup.metrics.MetricsRegistry;
+
+// request and query latencies in the Prometheus text format; the scraper has
+// no way to log in, and nothing here is about a particular user
+@RestController
+public class MetricsController
+{
+    private MetricsRegistry metricsRegistry;
+
+    @Autowired
+    public MetricsController(MetricsRegistry metricsRegistry)
+    {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @GetMapping(path = "metrics", produces = "text/plain; version=0.0.4; charset=utf-8")
+    @PreAuthorize("permitAll()")
+    public String getMetrics()
+    {
+        StringBuilder out = new StringBuilder(16 * 1024);
+        metricsRegistry.writePrometheus(out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,121 @@
+package org.yearup.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.yearup.data.InsufficientStockException;
+import org.yearup.data.OrderDao;
+import org.yearup.data.ProfileDao;
+import org.yearup.data.ShoppingCartDao;
+import org.yearup.data.UserDao;
+import org.yearup.models.Order;
+import org.yearup.models.OrderHistoryPage;
+import org.yearup.models.OrderSummary;
+import org.yearup.models.Profile;
+import org.yearup.models.User;
+
+import java.security.Principal;
+
+@RestController
+@RequestMapping("orders")
+@PreAuthorize("isAuthenticated()")
+@CrossOrigin
+public class OrdersController
+{
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 50;
+
+    private OrderDao orderDao;
+    private ProfileDao profileDao;
+    private UserDao userDao;
+    private ShoppingCartDao shoppingCartDao;
+
+    @Autowired
+    public OrdersController(OrderDao orderDao, ProfileDao profileDao, UserDao userDao, ShoppingCartDao shoppingCartDao)
+    {
+        this.orderDao = orderDao;
+        this.profileDao = profileDao;
+        this.userDao = userDao;
+        this.shoppingCartDao = shoppingCartDao;
+    }
+
+    // checks out the current user's cart, shipping to the address on their profile
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Order checkout(Principal principal)
+    {
+        User user = currentUser(principal);
+
+        Profile profile = profileDao.getByUserId(user.getId());
+        if (profile == null)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A profile with a shipping address is required.");
+
+        Order order;
+        try
+        {
+            // the order is placed from the cart table, so changes still held in memory are written first
+            order = shoppingCartDao.withStoredCart(user.getId(), () -> orderDao.checkout(user.getId(), profile));
+        }
+        catch (InsufficientStockException e)
+        {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+        catch (Exception e)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+
+        if (order == null)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The shopping cart is empty.");
+
+        return order;
+    }
+
+    // the user's orders, newest first; pass nextCursor back as "after" for the next page
+    @GetMapping
+    public OrderHistoryPage getHistory(@RequestParam(name="after", required = false) String after,
+                                       @RequestParam(name="limit", required = false) Integer limit,
+                                       Principal principal)
+    {
+        User user = currentUser(principal);
+
+        OrderSummary position;
+        try
+        {
+            position = OrderHistoryPage.decodeCursor(after);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+
+        return orderDao.getHistory(user.getId(), position, pageSize);
+    }
+
+    @GetMapping("{orderId}")
+    public Order getById(@PathVariable int orderId, Principal principal)
+    {
+        User user = currentUser(principal);
+
+        // another user's order is reported as missing rather than forbidden
+        Order order = orderDao.getById(user.getId(), orderId);
+        if (order == null)
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+
+        return order;
+    }
+
+    private User currentUser(Principal principal)
+    {
+        User user = userDao.getByUserName(principal.getName());
+        if (user == null)
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        return user;
+    }
+}
@@ -0,0 +1,112 @@
+package org.yearup.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.yearup.data.bulk.ProductExporter;
+import org.yearup.data.bulk.ProductImporter;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.models.BulkImportResult;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+// bulk catalog maintenance for merchandising
+@RestController
+@RequestMapping("products")
+@PreAuthorize("hasRole('ROLE_ADMIN')")
+@CrossOrigin
+public class ProductBulkController
+{
+    private static final String TEXT_CSV = "text/csv";
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private ProductImporter productImporter;
+    private ProductExporter productExporter;
+    private MySqlProductDao productDao;
+
+    // the export reads the table itself, through a forward-only cursor, rather than the in-memory catalog
+    @Autowired
+    public ProductBulkController(ProductImporter productImporter, ProductExporter productExporter, MySqlProductDao productDao)
+    {
+        this.productImporter = productImporter;
+        this.productExporter = productExporter;
+        this.productDao = productDao;
+    }
+
+    @PostMapping(value = "bulk", consumes = TEXT_CSV)
+    public BulkImportResult importCsv(InputStream body)
+    {
+        try
+        {
+            return productImporter.importCsv(reader(body));
+        }
+        catch (IllegalArgumentException | IOException | UncheckedIOException ex)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+        catch (Exception ex)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+    }
+
+    @PostMapping(value = "bulk", consumes = APPLICATION_NDJSON)
+    public BulkImportResult importNdjson(InputStream body)
+    {
+        try
+        {
+            return productImporter.importNdjson(reader(body));
+        }
+        catch (UncheckedIOException ex)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+        catch (Exception ex)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+    }
+
+    // format=csv (default) or format=ndjson
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(name = "format", defaultValue = "csv") String format)
+    {
+        StreamingResponseBody body;
+        String contentType;
+        if (format.equalsIgnoreCase("csv"))
+        {
+            body = out -> productExporter.writeCsv(out, consumer -> productDao.streamSearch(null, null, null, null, consumer));
+            contentType = TEXT_CSV;
+        }
+        else if (format.equalsIgnoreCase("ndjson"))
+        {
+            body = out -> productExporter.writeNdjson(out, consumer -> productDao.streamSearch(null, null, null, null, consumer));
+            contentType = APPLICATION_NDJSON;
+        }
+        else
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format must be csv or ndjson");
+        }
+
+        return ResponseEntity.ok()
+                             .contentType(MediaType.parseMediaType(contentType + ";charset=UTF-8"))
+                             .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products." + format.toLowerCase() + "\"")
+                             .body(body);
+    }
+
+    private static BufferedReader reader(InputStream body)
+    {
+        return new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8), 64 * 1024);
+    }
+}
@@ -0,0 +1,87 @@
+package org.yearup.controllers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.yearup.data.ProductJsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes product listings as a JSON array straight from the DAO to a single
+ * generator - see {@link ProductJsonWriter} - instead of building a list of
+ * Products for Jackson to serialize. The bytes are the same either way.
+ */
+@Component
+public class ProductJsonStreamer
+{
+    private final ObjectMapper objectMapper;
+
+    public ProductJsonStreamer(ObjectMapper objectMapper)
+    {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes the products to the response while they are being read, so the
+     * memory used per request does not depend on the size of the result. A
+     * failure after the first bytes were sent cuts the response short.
+     *
+     * @param source writes the products to the generator it is given, e.g. {@code g -> productDao.writeByCategoryIdJson(id, g)}
+     */
+    public ResponseEntity<StreamingResponseBody> stream(Consumer<JsonGenerator> source)
+    {
+        StreamingResponseBody body = outputStream -> writeArray(outputStream, source);
+
+        return ResponseEntity.ok()
+                             .contentType(MediaType.APPLICATION_JSON)
+                             .body(body);
+    }
+
+    /**
+     * Writes the products into a buffer, so a failure can still be answered
+     * with an error status.
+     *
+     * @param source writes the products to the generator it is given
+     */
+    public ResponseEntity<byte[]> write(Consumer<JsonGenerator> source)
+    {
+        // grows in segments, so a large listing is not copied every time the buffer fills up
+        ByteArrayBuilder buffer = new ByteArrayBuilder();
+        try
+        {
+            writeArray(buffer, source);
+            return ResponseEntity.ok()
+                                 .contentType(MediaType.APPLICATION_JSON)
+                                 .body(buffer.toByteArray());
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeArray(OutputStream outputStream, Consumer<JsonGenerator> source) throws IOException
+    {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream))
+        {
+            // the mapper's own settings (indentation, generator features), as when it writes a List<Product>
+            objectMapper.getSerializationConfig().initialize(generator);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            source.accept(generator);
+            generator.writeEndArray();
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+    }
+}
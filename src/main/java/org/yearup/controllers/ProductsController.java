@@ -2,46 +2,123 @@ package org.yearup.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.yearup.models.Product;
+import org.yearup.models.ProductFacets;
+import org.yearup.models.ProductField;
+import org.yearup.models.ProductPage;
 import org.yearup.data.ProductDao;
+import org.yearup.data.catalog.CatalogVersions;
+import org.yearup.data.catalog.ProductFacetService;
+import org.yearup.data.catalog.ProductViews;
+import org.yearup.data.search.ProductSearchService;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("products")
 @CrossOrigin
 public class ProductsController
 {
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int DEFAULT_SEARCH_RESULTS = 20;
+    private static final int MAX_SEARCH_RESULTS = 100;
+
     private ProductDao productDao;
+    private ProductJsonStreamer productJsonStreamer;
+    private ProductSearchService productSearchService;
+    private CatalogVersions catalogVersions;
+    private ProductViews productViews;
+    private ProductFacetService productFacetService;
 
     @Autowired
-    public ProductsController(ProductDao productDao)
+    public ProductsController(ProductDao productDao, ProductJsonStreamer productJsonStreamer,
+                              ProductSearchService productSearchService, CatalogVersions catalogVersions,
+                              ProductViews productViews, ProductFacetService productFacetService)
     {
         this.productDao = productDao;
+        this.productJsonStreamer = productJsonStreamer;
+        this.productSearchService = productSearchService;
+        this.catalogVersions = catalogVersions;
+        this.productViews = productViews;
+        this.productFacetService = productFacetService;
     }
 
     @GetMapping("")
     @PreAuthorize("permitAll()")
-    public List<Product> search(@RequestParam(name="cat", required = false) Integer categoryId,
-                                @RequestParam(name="minPrice", required = false) BigDecimal minPrice,
-                                @RequestParam(name="maxPrice", required = false) BigDecimal maxPrice,
-                                @RequestParam(name="color", required = false) String color
-                                )
+    public ResponseEntity<?> search(@RequestParam(name="cat", required = false) Integer categoryId,
+                                    @RequestParam(name="minPrice", required = false) BigDecimal minPrice,
+                                    @RequestParam(name="maxPrice", required = false) BigDecimal maxPrice,
+                                    @RequestParam(name="color", required = false) String color,
+                                    @RequestParam(name="after", required = false) String after,
+                                    @RequestParam(name="limit", required = false) Integer limit,
+                                    @RequestParam(name="fields", required = false) String fields,
+                                    WebRequest request
+                                    )
+    {
+        // a matching If-None-Match is answered with a 304 before anything is read or serialized
+        if (ConditionalRequests.notModified(catalogVersions.products(), request))
+            return null;
+
+        // any of the paging parameters switches the response to a ProductPage
+        if (after != null || limit != null || fields != null)
+        {
+            return ResponseEntity.ok(searchPage(categoryId, minPrice, maxPrice, color, after, limit, fields));
+        }
+
+        try
+        {
+            // without filters this is every product, the same list getAllProducts returns;
+            // the rows are written as JSON directly instead of being built into Products first
+            return productJsonStreamer.write(generator -> productDao.writeSearchJson(categoryId, minPrice, maxPrice, color, generator));
+        }
+        catch(Exception ex)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+    }
+
+    // same filters as search, but rows are written to the response as they come off the cursor
+    @GetMapping(value = "", params = "stream=true")
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<StreamingResponseBody> streamSearch(@RequestParam(name="cat", required = false) Integer categoryId,
+                                                              @RequestParam(name="minPrice", required = false) BigDecimal minPrice,
+                                                              @RequestParam(name="maxPrice", required = false) BigDecimal maxPrice,
+                                                              @RequestParam(name="color", required = false) String color)
+    {
+        return productJsonStreamer.stream(generator -> productDao.writeSearchJson(categoryId, minPrice, maxPrice, color, generator));
+    }
+
+    private ProductPage searchPage(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color,
+                                   String after, Integer limit, String fields)
     {
+        int afterProductId;
+        Set<ProductField> selectedFields;
         try
         {
-            // Check to see if the filters are not null
-            if (categoryId != null || minPrice != null || maxPrice != null || color != null) {
-                // Pass the filters to  productDao.search method
-                return productDao.search(categoryId, minPrice, maxPrice, color);
-            } else {
-                // If there are no filters we will retrieve all products
-                return productDao.getAllProducts();
-            }
+            afterProductId = ProductPage.decodeCursor(after);
+            selectedFields = ProductField.parse(fields);
+        }
+        catch(IllegalArgumentException ex)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+
+        try
+        {
+            return productDao.searchPage(categoryId, minPrice, maxPrice, color, afterProductId, pageSize, selectedFields);
         }
         catch(Exception ex)
         {
@@ -49,10 +126,75 @@ public class ProductsController
         }
     }
 
+    // full-text search over name and description, best match first; the last word also matches as a prefix
+    @GetMapping("search")
+    @PreAuthorize("permitAll()")
+    public List<Product> fullTextSearch(@RequestParam(name="q") String query,
+                                        @RequestParam(name="prefix", defaultValue = "true") boolean prefix,
+                                        @RequestParam(name="limit", required = false) Integer limit,
+                                        WebRequest request)
+    {
+        if (ConditionalRequests.notModified(catalogVersions.products(), request))
+            return null;
+
+        int maxResults = limit == null ? DEFAULT_SEARCH_RESULTS : limit;
+        if (maxResults < 1 || maxResults > MAX_SEARCH_RESULTS)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_SEARCH_RESULTS);
+
+        try
+        {
+            return productSearchService.search(query, prefix, maxResults);
+        }
+        catch(Exception ex)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+    }
+
+    // sidebar counts for the same filters as search: per category (with price range), per color and per price bucket
+    @GetMapping("facets")
+    @PreAuthorize("permitAll()")
+    public ProductFacets getFacets(@RequestParam(name="cat", required = false) Integer categoryId,
+                                   @RequestParam(name="minPrice", required = false) BigDecimal minPrice,
+                                   @RequestParam(name="maxPrice", required = false) BigDecimal maxPrice,
+                                   @RequestParam(name="color", required = false) String color,
+                                   WebRequest request)
+    {
+        if (ConditionalRequests.notModified(catalogVersions.products(), request))
+            return null;
+
+        try
+        {
+            return productFacetService.getFacets(categoryId, minPrice, maxPrice, color);
+        }
+        catch(Exception ex)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+    }
+
+    // served from the featured view, in id order
+    @GetMapping("featured")
+    @PreAuthorize("permitAll()")
+    public List<Product> getFeatured(@RequestParam(name="limit", required = false) Integer limit, WebRequest request)
+    {
+        if (ConditionalRequests.notModified(catalogVersions.products(), request))
+            return null;
+
+        int maxResults = limit == null ? DEFAULT_SEARCH_RESULTS : limit;
+        if (maxResults < 1 || maxResults > MAX_SEARCH_RESULTS)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_SEARCH_RESULTS);
+
+        return productViews.featured(maxResults);
+    }
+
     @GetMapping("{id}")
     @PreAuthorize("permitAll()")
-    public Product getById(@PathVariable int id )
+    public Product getById(@PathVariable int id, WebRequest request)
     {
+        if (ConditionalRequests.notModified(catalogVersions.product(id), request))
+            return null;
+
         try
         {
             var product = productDao.getById(id);
@@ -86,14 +228,18 @@ public class ProductsController
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     public void updateProduct(@PathVariable int id, @RequestBody Product product)
     {
+        boolean updated;
         try
         {
-            productDao.update(id, product);// bug
+            updated = productDao.update(id, product);
         }
         catch(Exception ex)
         {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
         }
+
+        if(!updated)
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
     }
 
     @DeleteMapping("{id}")
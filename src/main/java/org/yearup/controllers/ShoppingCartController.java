@@ -1,17 +1,32 @@
 package org.yearup.controllers;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import org.yearup.data.ProductDao;
 import org.yearup.data.ShoppingCartDao;
 import org.yearup.data.UserDao;
+import org.yearup.models.Product;
 import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartItem;
+import org.yearup.models.ShoppingCartLine;
 import org.yearup.models.User;
 
 import java.security.Principal;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-// convert this class to a REST controller
-// only logged in users should have access to these actions
+// only logged in users have access to these actions
+// every action is one cart statement plus one query to return the cart
+@RestController
+@RequestMapping("cart")
+@PreAuthorize("isAuthenticated()")
+@CrossOrigin
 public class ShoppingCartController
 {
     // a shopping cart requires
@@ -19,21 +34,110 @@ public class ShoppingCartController
     private UserDao userDao;
     private ProductDao productDao;
 
-
+    @Autowired
+    public ShoppingCartController(ShoppingCartDao shoppingCartDao, UserDao userDao, ProductDao productDao)
+    {
+        this.shoppingCartDao = shoppingCartDao;
+        this.userDao = userDao;
+        this.productDao = productDao;
+    }
 
     // each method in this controller requires a Principal object as a parameter
+    @GetMapping
     public ShoppingCart getCart(Principal principal)
     {
         try
         {
-            // get the currently logged in username
-            String userName = principal.getName();
-            // find database user by userId
-            User user = userDao.getByUserName(userName);
-            int userId = user.getId();
-
             // use the shoppingcartDao to get all items in the cart and return the cart
-            return null;
+            return shoppingCartDao.getByUserId(getUserId(principal));
+        }
+        catch (ResponseStatusException e)
+        {
+            throw e;
+        }
+        catch(Exception e)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+    }
+
+    // add one of the product to the cart, or one more if it is already there
+    @PostMapping("products/{productId}")
+    public ShoppingCart addProduct(@PathVariable int productId, Principal principal)
+    {
+        return addProducts(List.of(new ShoppingCartLine(productId, 1)), principal);
+    }
+
+    // batch add: [{"productId": 1, "quantity": 2}, ...]
+    @PostMapping("products")
+    public ShoppingCart addProducts(@RequestBody List<ShoppingCartLine> lines, Principal principal)
+    {
+        Map<Integer, Integer> quantities = new HashMap<>();
+        for (ShoppingCartLine line : validate(lines))
+        {
+            quantities.merge(line.getProductId(), line.getQuantity(), Integer::sum);
+        }
+
+        try
+        {
+            int userId = getUserId(principal);
+            shoppingCartDao.addProducts(userId, quantities);
+            return shoppingCartDao.getByUserId(userId);
+        }
+        catch (ResponseStatusException e)
+        {
+            throw e;
+        }
+        catch(Exception e)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+    }
+
+    // set the quantity of a product that is already in the cart
+    @PutMapping("products/{productId}")
+    public ShoppingCart updateProduct(@PathVariable int productId, @RequestBody ShoppingCartItem item, Principal principal)
+    {
+        return updateProducts(List.of(new ShoppingCartLine(productId, item.getQuantity())), principal);
+    }
+
+    // batch update: [{"productId": 1, "quantity": 5}, ...]
+    @PutMapping("products")
+    public ShoppingCart updateProducts(@RequestBody List<ShoppingCartLine> lines, Principal principal)
+    {
+        Map<Integer, Integer> quantities = new HashMap<>();
+        for (ShoppingCartLine line : validate(lines))
+        {
+            quantities.put(line.getProductId(), line.getQuantity());
+        }
+
+        try
+        {
+            int userId = getUserId(principal);
+            shoppingCartDao.updateQuantities(userId, quantities);
+            return shoppingCartDao.getByUserId(userId);
+        }
+        catch (ResponseStatusException e)
+        {
+            throw e;
+        }
+        catch(Exception e)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+    }
+
+    @DeleteMapping
+    public ShoppingCart clearCart(Principal principal)
+    {
+        try
+        {
+            shoppingCartDao.clear(getUserId(principal));
+            return new ShoppingCart();
+        }
+        catch (ResponseStatusException e)
+        {
+            throw e;
         }
         catch(Exception e)
         {
@@ -41,6 +145,38 @@ public class ShoppingCartController
         }
     }
 
+    private int getUserId(Principal principal)
+    {
+        // get the currently logged in username
+        String userName = principal.getName();
+        // find database user by userId
+        User user = userDao.getByUserName(userName);
+        if (user == null)
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+
+        return user.getId();
+    }
+
+    // the products are looked up together, in one read whatever the number of lines
+    private List<ShoppingCartLine> validate(List<ShoppingCartLine> lines)
+    {
+        if (lines == null || lines.isEmpty())
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one product is required.");
 
+        Set<Integer> productIds = new HashSet<>();
+        for (ShoppingCartLine line : lines)
+        {
+            if (line.getQuantity() <= 0)
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantity must be greater than zero.");
+            productIds.add(line.getProductId());
+        }
 
+        Map<Integer, Product> products = productDao.getByIds(productIds);
+        for (ShoppingCartLine line : lines)
+        {
+            if (!products.containsKey(line.getProductId()))
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product " + line.getProductId() + " not found.");
+        }
+        return lines;
+    }
 }
@@ -0,0 +1,40 @@
+package org.yearup.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.yearup.models.Storefront;
+import org.yearup.storefront.StorefrontAssembler;
+
+// the home page in one round trip: categories, featured products and the top products of each category
+@RestController
+@RequestMapping("storefront")
+@CrossOrigin
+public class StorefrontController
+{
+    private StorefrontAssembler storefrontAssembler;
+
+    @Autowired
+    public StorefrontController(StorefrontAssembler storefrontAssembler)
+    {
+        this.storefrontAssembler = storefrontAssembler;
+    }
+
+    @GetMapping("")
+    @PreAuthorize("permitAll()")
+    public ResponseEntity<Storefront> getStorefront()
+    {
+        Storefront storefront = storefrontAssembler.assemble();
+
+        // a partial page must not be cached in place of the complete one
+        if (storefront.isPartial())
+            return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(storefront);
+
+        return ResponseEntity.ok(storefront);
+    }
+}
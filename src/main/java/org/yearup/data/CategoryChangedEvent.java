@@ -0,0 +1,33 @@
+package org.yearup.data;
+
+/**
+ * Published after a write to the categories table.
+ */
+public class CategoryChangedEvent
+{
+    public enum Type
+    {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Type type;
+    private final int categoryId;
+
+    public CategoryChangedEvent(Type type, int categoryId)
+    {
+        this.type = type;
+        this.categoryId = categoryId;
+    }
+
+    public Type getType()
+    {
+        return type;
+    }
+
+    public int getCategoryId()
+    {
+        return categoryId;
+    }
+}
@@ -0,0 +1,23 @@
+package org.yearup.data;
+
+/**
+ * Thrown when an order asks for more of a product than is in stock.
+ * The transaction that detected it has been rolled back.
+ */
+public class InsufficientStockException extends RuntimeException
+{
+    private static final long serialVersionUID = 6522616958496998525L;
+
+    private final int productId;
+
+    public InsufficientStockException(int productId, int requested, int available)
+    {
+        super("Only " + available + " of product " + productId + " in stock, " + requested + " requested.");
+        this.productId = productId;
+    }
+
+    public int getProductId()
+    {
+        return productId;
+    }
+}
@@ -0,0 +1,30 @@
+package org.yearup.data;
+
+import org.yearup.models.Order;
+import org.yearup.models.OrderHistoryPage;
+import org.yearup.models.OrderSummary;
+import org.yearup.models.Profile;
+
+public interface OrderDao
+{
+    /**
+     * Turns the user's shopping cart into an order shipped to the given profile's
+     * address, takes the ordered quantities out of stock and empties the cart,
+     * all in one transaction.
+     *
+     * @return the new order, or null when the cart is empty
+     * @throws InsufficientStockException when a product does not have enough stock
+     */
+    Order checkout(int userId, Profile shipTo);
+
+    /**
+     * Keyset pagination over the user's orders, newest first: at most limit
+     * orders that come after the given position (null for the newest).
+     */
+    OrderHistoryPage getHistory(int userId, OrderSummary after, int limit);
+
+    /**
+     * @return the order with its line items, or null when the user has no such order
+     */
+    Order getById(int userId, int orderId);
+}
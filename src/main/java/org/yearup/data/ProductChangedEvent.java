@@ -0,0 +1,78 @@
+package org.yearup.data;
+
+import org.yearup.models.Product;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Published after a write to the products table has been committed so that
+ * in-memory views of the catalog can be brought up to date without re-reading
+ * the whole table.
+ */
+public class ProductChangedEvent
+{
+    public enum Type
+    {
+        CREATED,
+        UPDATED,
+        DELETED,
+        // many products changed at once (e.g. a bulk import): re-read the catalog instead of applying one product
+        RELOADED,
+        // only the stock of some products changed (e.g. a checkout); see getStock
+        STOCK_CHANGED
+    }
+
+    private final Type type;
+    private final int productId;
+    private final Product product;
+    private final Map<Integer, Integer> stock;
+
+    public ProductChangedEvent(Type type, int productId, Product product)
+    {
+        this.type = type;
+        this.productId = productId;
+        this.product = product;
+        this.stock = Collections.emptyMap();
+    }
+
+    /**
+     * A STOCK_CHANGED event.
+     *
+     * @param stock the new stock of each product that changed, by product id
+     */
+    public ProductChangedEvent(Map<Integer, Integer> stock)
+    {
+        this.type = Type.STOCK_CHANGED;
+        this.productId = 0;
+        this.product = null;
+        this.stock = Collections.unmodifiableMap(stock);
+    }
+
+    public Type getType()
+    {
+        return type;
+    }
+
+    public int getProductId()
+    {
+        return productId;
+    }
+
+    /**
+     * The product as it now exists in the database, or null when it was deleted
+     * or the event is a RELOADED or STOCK_CHANGED event.
+     */
+    public Product getProduct()
+    {
+        return product;
+    }
+
+    /**
+     * The new stock by product id for a STOCK_CHANGED event; empty otherwise.
+     */
+    public Map<Integer, Integer> getStock()
+    {
+        return stock;
+    }
+}
@@ -1,18 +1,48 @@
 package org.yearup.data;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import org.yearup.models.Product;
+import org.yearup.models.ProductField;
+import org.yearup.models.ProductPage;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public interface ProductDao
 {
     List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color);
+    // keyset pagination: at most limit products with an id greater than afterProductId
+    ProductPage searchPage(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color,
+                           int afterProductId, int limit, Set<ProductField> fields);
     List<Product> listByCategoryId(int categoryId);
+    // at most limit featured products, in id order
+    List<Product> listFeatured(int limit);
+    // the first limit products of a category: featured ones first, then in id order
+    List<Product> listTopByCategoryId(int categoryId, int limit);
     Product getById(int productId);
+    // the products that exist among the ids, by id; one read however many ids there are
+    Map<Integer, Product> getByIds(Collection<Integer> productIds);
     Product create(Product product);
-    void update(int productId, Product product);
-    void delete(int productId);
+    // inserts in batches, one transaction per batch; rows that fail are handed to onError with their position
+    // and the rest are still inserted. Publishes a single RELOADED event instead of one per product.
+    int createAll(Iterator<Product> products, int batchSize, BiConsumer<Integer, RuntimeException> onError);
+    // false when there is no product with that id
+    boolean update(int productId, Product product);
+    boolean delete(int productId);
 
     List<Product> getAllProducts();
+
+    // hand each matching product to the consumer as it is read instead of building a list
+    void streamSearch(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color, Consumer<Product> consumer);
+
+    // write each matching product to the generator as the JSON object Jackson would write for it (see
+    // ProductJsonWriter), without building Products; write errors are thrown as UncheckedIOException
+    void writeSearchJson(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color, JsonGenerator generator);
+    void writeByCategoryIdJson(int categoryId, JsonGenerator generator);
 }
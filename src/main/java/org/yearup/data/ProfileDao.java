@@ -6,4 +6,6 @@ import org.yearup.models.Profile;
 public interface ProfileDao
 {
     Profile create(Profile profile);
+
+    Profile getByUserId(int userId);
 }
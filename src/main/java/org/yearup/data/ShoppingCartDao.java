@@ -2,8 +2,31 @@ package org.yearup.data;
 
 import org.yearup.models.ShoppingCart;
 
+import java.util.Map;
+import java.util.function.Supplier;
+
 public interface ShoppingCartDao
 {
     ShoppingCart getByUserId(int userId);
-    // add additional method signatures here
+
+    /**
+     * Adds the quantities to whatever is already in the cart, inserting products
+     * that are not in it yet. Keys are product ids.
+     */
+    void addProducts(int userId, Map<Integer, Integer> quantities);
+
+    /**
+     * Sets the quantity of products that are already in the cart; products that
+     * are not in the cart are ignored. Keys are product ids.
+     */
+    void updateQuantities(int userId, Map<Integer, Integer> quantities);
+
+    void clear(int userId);
+
+    /**
+     * Runs the work against the cart as it is stored in the database: changes
+     * not written yet are written first, and the user's cart cannot change
+     * until the work returns. Checkout runs inside this.
+     */
+    <T> T withStoredCart(int userId, Supplier<T> work);
 }
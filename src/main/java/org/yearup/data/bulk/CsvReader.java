@@ -0,0 +1,126 @@
+package org.yearup.data.bulk;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 CSV one record at a time: fields are separated by commas,
+ * may be wrapped in double quotes, and a quoted field may contain commas,
+ * line breaks and doubled quotes. Only the current record is held in memory.
+ */
+public class CsvReader
+{
+    private final Reader reader;
+    private final StringBuilder field = new StringBuilder();
+    private int pushedBack = -2;
+
+    public CsvReader(Reader reader)
+    {
+        this.reader = reader;
+    }
+
+    /**
+     * @return the fields of the next record, or null at the end of the input
+     */
+    public List<String> next() throws IOException
+    {
+        int c = read();
+        // skip blank lines between records
+        while (c == '\r' || c == '\n')
+        {
+            c = read();
+        }
+        if (c == -1)
+            return null;
+
+        List<String> fields = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+
+        while (true)
+        {
+            if (quoted)
+            {
+                if (c == -1)
+                    throw new IOException("Unterminated quoted field");
+                if (c == '"')
+                {
+                    int following = read();
+                    if (following == '"')
+                    {
+                        field.append('"');
+                    }
+                    else
+                    {
+                        quoted = false;
+                        unread(following);
+                    }
+                }
+                else
+                {
+                    field.append((char) c);
+                }
+            }
+            else if (c == '"' && field.length() == 0)
+            {
+                quoted = true;
+            }
+            else if (c == ',')
+            {
+                fields.add(field.toString());
+                field.setLength(0);
+            }
+            else if (c == '\r' || c == '\n' || c == -1)
+            {
+                if (c == '\r')
+                {
+                    int following = read();
+                    if (following != '\n')
+                        unread(following);
+                }
+                fields.add(field.toString());
+                return fields;
+            }
+            else
+            {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * Quotes the value when it contains a comma, quote or line break.
+     */
+    public static String escape(String value)
+    {
+        if (value == null)
+            return "";
+
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r')
+                return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+
+    private int read() throws IOException
+    {
+        if (pushedBack != -2)
+        {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private void unread(int c)
+    {
+        pushedBack = c;
+    }
+}
@@ -0,0 +1,110 @@
+package org.yearup.data.bulk;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.stereotype.Component;
+import org.yearup.models.Product;
+import org.yearup.models.ProductField;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Writes products as CSV (with a header row that {@link ProductImporter} accepts)
+ * or as newline-delimited JSON, one product at a time as they are read.
+ */
+@Component
+public class ProductExporter
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ObjectWriter productWriter;
+
+    public ProductExporter(ObjectMapper objectMapper)
+    {
+        this.productWriter = objectMapper.writerFor(Product.class)
+                                         .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * @param source calls the consumer it is given once per product
+     */
+    public void writeCsv(OutputStream outputStream, Consumer<Consumer<Product>> source) throws IOException
+    {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+
+        ProductField[] columns = ProductField.values();
+        for (int i = 0; i < columns.length; i++)
+        {
+            if (i > 0) writer.write(',');
+            writer.write(columns[i].getJsonName());
+        }
+        writer.write("\r\n");
+
+        write(source, product -> {
+            for (int i = 0; i < columns.length; i++)
+            {
+                if (i > 0) writer.write(',');
+                Object value = columns[i].valueOf(product);
+                writer.write(value == null ? "" : CsvReader.escape(value instanceof BigDecimal
+                        ? ((BigDecimal) value).toPlainString()
+                        : value.toString()));
+            }
+            writer.write("\r\n");
+        });
+        writer.flush();
+    }
+
+    /**
+     * @param source calls the consumer it is given once per product
+     */
+    public void writeNdjson(OutputStream outputStream, Consumer<Consumer<Product>> source) throws IOException
+    {
+        try (JsonGenerator generator = productWriter.getFactory().createGenerator(outputStream))
+        {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // the generator writes the separator between top-level values, the last line's newline is ours
+            generator.setRootValueSeparator(new SerializedString("\n"));
+
+            write(source, product -> productWriter.writeValue(generator, product));
+            generator.writeRaw('\n');
+        }
+    }
+
+    @FunctionalInterface
+    private interface ProductWriter
+    {
+        void write(Product product) throws IOException;
+    }
+
+    private static void write(Consumer<Consumer<Product>> source, ProductWriter writer) throws IOException
+    {
+        try
+        {
+            source.accept(product -> {
+                try
+                {
+                    writer.write(product);
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package org.yearup.data.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProductDao;
+import org.yearup.models.BulkImportResult;
+import org.yearup.models.Product;
+import org.yearup.models.ProductField;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Imports products from CSV or newline-delimited JSON.
+ *
+ * The input is parsed one row at a time while earlier rows are being written,
+ * so memory does not grow with the size of the upload. Rows that cannot be
+ * parsed or are rejected by the database are reported by row number and
+ * skipped; every other row is imported.
+ */
+@Component
+public class ProductImporter
+{
+    private static final Set<ProductField> REQUIRED = EnumSet.of(ProductField.NAME, ProductField.PRICE, ProductField.CATEGORY_ID);
+
+    private final ProductDao productDao;
+    private final ObjectReader productReader;
+    private final int batchSize;
+
+    public ProductImporter(ProductDao productDao,
+                           ObjectMapper objectMapper,
+                           @Value("${products.bulk.batch-size:1000}") int batchSize)
+    {
+        this.productDao = productDao;
+        this.productReader = objectMapper.readerFor(Product.class);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * The first record must be a header naming the columns, using the JSON
+     * property names (productId, name, price, categoryId, ...) or their
+     * snake_case column names. A productId column is ignored.
+     */
+    public BulkImportResult importCsv(BufferedReader reader) throws IOException
+    {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.next();
+        if (header == null)
+            return new BulkImportResult();
+
+        ProductField[] columns = new ProductField[header.size()];
+        for (int i = 0; i < columns.length; i++)
+        {
+            columns[i] = ProductField.fromJsonName(header.get(i).trim().replace("_", ""));
+        }
+        if (!Arrays.asList(columns).containsAll(REQUIRED))
+            throw new IllegalArgumentException("The header must include name, price and categoryId");
+
+        return run(new Rows(batchSize)
+        {
+            @Override
+            Product parse() throws IOException
+            {
+                // rows are numbered by record, after the header
+                row++;
+                List<String> record = csv.next();
+                if (record == null)
+                    return null;
+                if (record.size() != columns.length)
+                    throw new IllegalArgumentException("Expected " + columns.length + " fields but found " + record.size());
+
+                Product product = new Product();
+                product.setDescription("");
+                product.setColor("");
+                product.setImageUrl("");
+                for (int i = 0; i < columns.length; i++)
+                {
+                    set(product, columns[i], record.get(i).trim());
+                }
+                return product;
+            }
+        });
+    }
+
+    /**
+     * One JSON product object per line; blank lines are skipped, but still
+     * counted, so errors are reported by line number.
+     */
+    public BulkImportResult importNdjson(BufferedReader reader)
+    {
+        return run(new Rows(batchSize)
+        {
+            @Override
+            Product parse() throws IOException
+            {
+                String line;
+                do
+                {
+                    line = reader.readLine();
+                    row++;
+                }
+                while (line != null && line.isBlank());
+                if (line == null)
+                    return null;
+
+                try
+                {
+                    return productReader.readValue(line);
+                }
+                catch (JsonProcessingException e)
+                {
+                    throw new IllegalArgumentException(e.getOriginalMessage());
+                }
+            }
+        });
+    }
+
+    private BulkImportResult run(Rows rows)
+    {
+        long start = System.nanoTime();
+        BulkImportResult result = rows.result;
+
+        int imported = productDao.createAll(rows, batchSize,
+                (position, e) -> result.addError(rows.rowAt(position), message(e)));
+
+        result.setImported(imported);
+        result.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    private static void set(Product product, ProductField field, String value)
+    {
+        try
+        {
+            switch (field)
+            {
+                case NAME: product.setName(value); break;
+                case PRICE: product.setPrice(new BigDecimal(value)); break;
+                case CATEGORY_ID: product.setCategoryId(Integer.parseInt(value)); break;
+                case DESCRIPTION: product.setDescription(value); break;
+                case COLOR: product.setColor(value); break;
+                case STOCK: product.setStock(value.isEmpty() ? 0 : Integer.parseInt(value)); break;
+                case IMAGE_URL: product.setImageUrl(value); break;
+                case FEATURED: product.setFeatured(value.equalsIgnoreCase("true") || value.equals("1")); break;
+                default: break;
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Invalid " + field.getJsonName() + ": '" + value + "'");
+        }
+    }
+
+    private static void validate(Product product)
+    {
+        if (product.getName() == null || product.getName().isBlank())
+            throw new IllegalArgumentException("name is required");
+        if (product.getPrice() == null || product.getPrice().signum() < 0)
+            throw new IllegalArgumentException("price must be zero or more");
+        if (product.getStock() < 0)
+            throw new IllegalArgumentException("stock must be zero or more");
+    }
+
+    private static String message(RuntimeException e)
+    {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        return cause.getMessage();
+    }
+
+    /**
+     * Hands valid products to the DAO as they are parsed, recording invalid rows
+     * as errors, and remembers the row numbers of the products the DAO may still
+     * report a database error for, so it can be reported against the right row.
+     *
+     * createAll reports errors only for the batch it is inserting, and has read
+     * at most one product past it, so the row numbers of the last batchSize + 1
+     * products are kept in a ring and nothing grows with the size of the upload.
+     */
+    private abstract static class Rows implements Iterator<Product>
+    {
+        private final BulkImportResult result = new BulkImportResult();
+        private final long[] rowNumbers;
+        private int count;
+        private Product next;
+        // the row number of the record parse() last read; parse() advances it
+        long row;
+
+        Rows(int batchSize)
+        {
+            this.rowNumbers = new long[batchSize + 1];
+        }
+
+        // the next record, or null at the end of the input
+        abstract Product parse() throws IOException;
+
+        @Override
+        public boolean hasNext()
+        {
+            while (next == null)
+            {
+                Product product;
+                try
+                {
+                    product = parse();
+                    if (product == null)
+                        return false;
+                    validate(product);
+                }
+                catch (IllegalArgumentException e)
+                {
+                    result.addError(row, e.getMessage());
+                    continue;
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+
+                rowNumbers[count++ % rowNumbers.length] = row;
+                next = product;
+            }
+            return true;
+        }
+
+        @Override
+        public Product next()
+        {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            Product product = next;
+            next = null;
+            return product;
+        }
+
+        long rowAt(int position)
+        {
+            return rowNumbers[position % rowNumbers.length];
+        }
+    }
+}
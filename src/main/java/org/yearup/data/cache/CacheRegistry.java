@@ -0,0 +1,33 @@
+package org.yearup.data.cache;
+
+import org.springframework.stereotype.Component;
+import org.yearup.models.CacheStats;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Creates the application's caches and keeps track of them so their
+ * statistics can be reported in one place.
+ */
+@Component
+public class CacheRegistry
+{
+    private final List<TtlCache<?, ?>> caches = new CopyOnWriteArrayList<>();
+
+    public <K, V> TtlCache<K, V> create(String name, int maxSize, long ttl, TimeUnit unit)
+    {
+        TtlCache<K, V> cache = new TtlCache<>(name, maxSize, ttl, unit);
+        caches.add(cache);
+        return cache;
+    }
+
+    public List<CacheStats> getStats()
+    {
+        return caches.stream()
+                     .map(TtlCache::getStats)
+                     .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,119 @@
+package org.yearup.data.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.yearup.data.CategoryChangedEvent;
+import org.yearup.data.CategoryDao;
+import org.yearup.data.mysql.MySqlCategoryDao;
+import org.yearup.models.Category;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Cache-aside in front of {@link MySqlCategoryDao}. Categories are read on every
+ * page but almost never written, so reads are answered from memory and every
+ * write invalidates what it could have changed.
+ */
+@Primary
+@Component
+@ConditionalOnProperty(name = "cache.categories.enabled", havingValue = "true", matchIfMissing = true)
+public class CachingCategoryDao implements CategoryDao
+{
+    private static final String ALL = "all";
+
+    private final MySqlCategoryDao categoryDao;
+    private final TtlCache<String, List<Category>> allCategories;
+    private final TtlCache<Integer, Category> categoriesById;
+
+    // loaders are created once so that a cache hit does not allocate
+    private final Function<String, List<Category>> loadAll;
+    private final Function<Integer, Category> loadById;
+
+    public CachingCategoryDao(MySqlCategoryDao categoryDao,
+                              CacheRegistry cacheRegistry,
+                              @Value("${cache.categories.ttl-seconds:300}") long ttlSeconds,
+                              @Value("${cache.categories.max-size:1000}") int maxSize)
+    {
+        this.categoryDao = categoryDao;
+        this.allCategories = cacheRegistry.create("categories.all", 1, ttlSeconds, TimeUnit.SECONDS);
+        this.categoriesById = cacheRegistry.create("categories.byId", maxSize, ttlSeconds, TimeUnit.SECONDS);
+
+        this.loadAll = key -> {
+            long generation = categoriesById.generation();
+            List<Category> categories = categoryDao.getAllCategories();
+            categories.forEach(category -> categoriesById.putIfCurrent(category.getCategoryId(), category, generation));
+            return Collections.unmodifiableList(categories);
+        };
+        this.loadById = categoryDao::getById;
+    }
+
+    @Override
+    public List<Category> getAllCategories()
+    {
+        return allCategories.get(ALL, loadAll);
+    }
+
+    @Override
+    public Category getById(int categoryId)
+    {
+        return categoriesById.get(categoryId, loadById);
+    }
+
+    @Override
+    public ResponseEntity<Category> create(Category category)
+    {
+        ResponseEntity<Category> created = categoryDao.create(category);
+        allCategories.invalidateAll();
+        if (created.getBody() != null)
+            categoriesById.invalidate(created.getBody().getCategoryId());
+        return created;
+    }
+
+    @Override
+    public void update(int categoryId, Category category)
+    {
+        try
+        {
+            categoryDao.update(categoryId, category);
+        }
+        finally
+        {
+            invalidate(categoryId);
+        }
+    }
+
+    @Override
+    public void delete(int categoryId)
+    {
+        try
+        {
+            categoryDao.delete(categoryId);
+        }
+        finally
+        {
+            invalidate(categoryId);
+        }
+    }
+
+    // also catches writes made through MySqlCategoryDao directly, and runs before the catalog versions move
+    @EventListener
+    @Order(0)
+    public void onCategoryChanged(CategoryChangedEvent event)
+    {
+        invalidate(event.getCategoryId());
+    }
+
+    private void invalidate(int categoryId)
+    {
+        categoriesById.invalidate(categoryId);
+        allCategories.invalidateAll();
+    }
+}
@@ -0,0 +1,150 @@
+package org.yearup.data.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.yearup.data.UserDao;
+import org.yearup.data.mysql.MySqlUserDao;
+import org.yearup.models.User;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Caches user lookups in front of {@link MySqlUserDao}.
+ *
+ * A login looks the same user up from the UserDetailsService and again from the
+ * controller, and registering checks exists() before creating. Lookups are first
+ * answered from a per-request memo, then from a short-lived shared cache that
+ * also remembers unknown usernames. Creating a user invalidates both.
+ */
+@Primary
+@Component
+@ConditionalOnProperty(name = "cache.users.enabled", havingValue = "true", matchIfMissing = true)
+public class CachingUserDao implements UserDao
+{
+    private static final String REQUEST_MEMO = CachingUserDao.class.getName() + ".memo";
+
+    private final MySqlUserDao userDao;
+    private final TtlCache<String, User> usersByName;
+    private final TtlCache<Integer, User> usersById;
+
+    private final Function<String, User> loadByName;
+    private final Function<Integer, User> loadById;
+
+    public CachingUserDao(MySqlUserDao userDao,
+                          CacheRegistry cacheRegistry,
+                          @Value("${cache.users.ttl-seconds:30}") long ttlSeconds,
+                          @Value("${cache.users.max-size:10000}") int maxSize)
+    {
+        this.userDao = userDao;
+        this.usersByName = cacheRegistry.create("users.byName", maxSize, ttlSeconds, TimeUnit.SECONDS);
+        this.usersById = cacheRegistry.create("users.byId", maxSize, ttlSeconds, TimeUnit.SECONDS);
+
+        this.loadByName = userDao::getByUserName;
+        this.loadById = userDao::getUserById;
+    }
+
+    @Override
+    public List<User> getAll()
+    {
+        return userDao.getAll();
+    }
+
+    @Override
+    public User getUserById(int userId)
+    {
+        return usersById.get(userId, loadById);
+    }
+
+    @Override
+    public User getByUserName(String username)
+    {
+        if (username == null)
+            return null;
+
+        // usernames compare case-insensitively in MySQL, so they are cached that way too
+        String key = username.toLowerCase(Locale.ROOT);
+
+        Map<String, User> memo = requestMemo();
+        if (memo == null)
+            return usersByName.get(key, loadByName);
+
+        if (memo.containsKey(key))
+            return memo.get(key);
+
+        User user = usersByName.get(key, loadByName);
+        memo.put(key, user);
+        return user;
+    }
+
+    @Override
+    public int getIdByUsername(String username)
+    {
+        User user = getByUserName(username);
+        return user != null ? user.getId() : -1;
+    }
+
+    @Override
+    public boolean exists(String username)
+    {
+        return getByUserName(username) != null;
+    }
+
+    @Override
+    public User create(User user)
+    {
+        try
+        {
+            return userDao.create(user);
+        }
+        finally
+        {
+            // drops the cached "no such user" answer that register's exists() check left behind
+            invalidate(user.getUsername());
+        }
+    }
+
+    /**
+     * Drops everything cached for a username; call after changing a user outside this DAO.
+     */
+    public void invalidate(String username)
+    {
+        if (username == null)
+            return;
+
+        String key = username.toLowerCase(Locale.ROOT);
+        TtlCache.Entry<User> cached = usersByName.getEntry(key);
+        usersByName.invalidate(key);
+        if (cached != null && cached.getValue() != null)
+            usersById.invalidate(cached.getValue().getId());
+
+        Map<String, User> memo = requestMemo();
+        if (memo != null)
+            memo.remove(key);
+    }
+
+    // null when there is no current request, e.g. on a background thread
+    @SuppressWarnings("unchecked")
+    private static Map<String, User> requestMemo()
+    {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null)
+            return null;
+
+        Map<String, User> memo = (Map<String, User>) attributes.getAttribute(REQUEST_MEMO, RequestAttributes.SCOPE_REQUEST);
+        if (memo == null)
+        {
+            memo = new HashMap<>();
+            attributes.setAttribute(REQUEST_MEMO, memo, RequestAttributes.SCOPE_REQUEST);
+        }
+        return memo;
+    }
+}
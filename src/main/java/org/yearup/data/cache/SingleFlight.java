@@ -0,0 +1,116 @@
+package org.yearup.data.cache;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent loads of the same key into one.
+ *
+ * The first caller for a key runs the loader; callers that ask for the same
+ * key while it runs wait for it and get its result (or its exception) instead
+ * of running the loader again. Nothing is kept once the load finishes - the
+ * next call for the key loads again - so this only removes duplicate work,
+ * it never serves an answer older than the load in flight.
+ *
+ * Keys must have value equality (an Integer, a List of the parameters).
+ * Results are handed to several callers, so they must not be modified.
+ */
+public class SingleFlight<K, V>
+{
+    private final String name;
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public SingleFlight(String name)
+    {
+        this.name = name;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public V execute(K key, Supplier<V> loader)
+    {
+        calls.increment();
+
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null)
+        {
+            coalesced.increment();
+            return await(leader);
+        }
+
+        try
+        {
+            V value = loader.get();
+            // removed before completing, so a caller that arrives now starts a new load
+            inFlight.remove(key, flight);
+            flight.complete(value);
+            return value;
+        }
+        catch (Throwable e)
+        {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Makes the next call for every key run its own load. Called after a write,
+     * so a reader does not join a load that started before the write committed.
+     * The loads already in flight finish and answer their callers as usual.
+     */
+    public void forgetAll()
+    {
+        inFlight.clear();
+    }
+
+    /**
+     * @return all calls, including the coalesced ones
+     */
+    public long getCalls()
+    {
+        return calls.sum();
+    }
+
+    /**
+     * @return calls answered by another caller's load
+     */
+    public long getCoalesced()
+    {
+        return coalesced.sum();
+    }
+
+    public int getInFlight()
+    {
+        return inFlight.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> leader)
+    {
+        try
+        {
+            return leader.join();
+        }
+        catch (CompletionException e)
+        {
+            // rethrow what the loader threw, as the leader saw it
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package org.yearup.data.cache;
+
+import org.yearup.models.CacheStats;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded, thread-safe cache whose entries expire after a time to live.
+ *
+ * A hit is a map lookup and a clock read, with no locking and no allocation.
+ * Null values are cached too, so "not found" answers are remembered as well.
+ * When the cache is full, a small sample of entries is examined: the expired
+ * ones in it are dropped, or else the one closest to expiry is evicted. Each
+ * sample starts where the previous one stopped, so over successive evictions
+ * every entry is looked at, not just the ones at the front of the map.
+ *
+ * Every invalidation moves the cache to a new generation, and a value loaded
+ * in an earlier generation is not cached: a load that read the database before
+ * a write committed must not put its stale value back after the write's
+ * invalidation and serve it for the whole time to live.
+ */
+public class TtlCache<K, V>
+{
+    private static final int EVICTION_SAMPLE = 16;
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    // where the next eviction sample starts; the map's iterators never fail on concurrent changes, so one can be kept
+    private Iterator<Map.Entry<K, Entry<V>>> sweep;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TtlCache(String name, int maxSize, long ttl, TimeUnit unit)
+    {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the cached value, calling the loader and caching its result
+     * (even when it is null) on a miss.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader)
+    {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.isLive(System.nanoTime()))
+        {
+            hits.increment();
+            return entry.value;
+        }
+
+        misses.increment();
+        long loadGeneration = generation.get();
+        V value = loader.apply(key);
+        putIfCurrent(key, value, loadGeneration);
+        return value;
+    }
+
+    /**
+     * @return the entry for the key, or null on a miss (a cached null value is returned as an entry holding null)
+     */
+    public Entry<V> getEntry(K key)
+    {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.isLive(System.nanoTime()))
+        {
+            hits.increment();
+            return entry;
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    public void put(K key, V value)
+    {
+        put(key, value, ttlNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Caches a value for at most the given time; the cache's own time to live still applies.
+     */
+    public void put(K key, V value, long ttl, TimeUnit unit)
+    {
+        long expiresAt = System.nanoTime() + Math.min(ttlNanos, unit.toNanos(ttl));
+        if (entries.put(key, new Entry<>(value, expiresAt)) == null && entries.size() > maxSize)
+        {
+            evict();
+        }
+    }
+
+    /**
+     * The current generation; read it before loading a value that is put with
+     * {@link #putIfCurrent} rather than through {@link #get}.
+     */
+    public long generation()
+    {
+        return generation.get();
+    }
+
+    /**
+     * Caches a value unless the cache has been invalidated since the given
+     * generation, i.e. since the value was loaded.
+     */
+    public void putIfCurrent(K key, V value, long loadGeneration)
+    {
+        long expiresAt = System.nanoTime() + ttlNanos;
+        // checked under the key's lock, so an invalidation either comes first and is seen, or comes after and removes the entry
+        entries.compute(key, (k, current) -> generation.get() == loadGeneration ? new Entry<>(value, expiresAt) : current);
+        if (entries.size() > maxSize)
+        {
+            evict();
+        }
+    }
+
+    public void invalidate(K key)
+    {
+        generation.incrementAndGet();
+        entries.remove(key);
+    }
+
+    public void invalidateAll()
+    {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    public int size()
+    {
+        return entries.size();
+    }
+
+    public CacheStats getStats()
+    {
+        return new CacheStats(name, entries.size(), maxSize, hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    // costs at most EVICTION_SAMPLE entries per entry evicted, however large the cache
+    private synchronized void evict()
+    {
+        long now = System.nanoTime();
+        while (entries.size() > maxSize)
+        {
+            K oldestKey = null;
+            long oldestRemaining = Long.MAX_VALUE;
+            boolean droppedExpired = false;
+
+            for (int i = 0; i < EVICTION_SAMPLE; i++)
+            {
+                if (sweep == null || !sweep.hasNext())
+                {
+                    // wrapped around; a map smaller than the sample is not read twice
+                    if (sweep != null && i > 0)
+                        break;
+                    sweep = entries.entrySet().iterator();
+                    if (!sweep.hasNext())
+                        break;
+                }
+
+                Map.Entry<K, Entry<V>> candidate = sweep.next();
+                if (!candidate.getValue().isLive(now))
+                {
+                    sweep.remove();
+                    evictions.increment();
+                    droppedExpired = true;
+                    continue;
+                }
+
+                long remaining = candidate.getValue().expiresAt - now;
+                if (remaining < oldestRemaining)
+                {
+                    oldestKey = candidate.getKey();
+                    oldestRemaining = remaining;
+                }
+            }
+
+            if (droppedExpired)
+                continue;
+            if (oldestKey == null)
+                return;
+            if (entries.remove(oldestKey) != null)
+                evictions.increment();
+        }
+    }
+
+    public static final class Entry<V>
+    {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt)
+        {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        public V getValue()
+        {
+            return value;
+        }
+
+        private boolean isLive(long now)
+        {
+            return now - expiresAt < 0;
+        }
+    }
+}
@@ -0,0 +1,479 @@
+package org.yearup.data.cart;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProductDao;
+import org.yearup.data.ShoppingCartDao;
+import org.yearup.data.mysql.MySqlShoppingCartDao;
+import org.yearup.models.Product;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartItem;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Keeps active carts in memory and writes their changes to the shopping_cart
+ * table in the background.
+ *
+ * A mutation is applied to the in-memory cart and answered at once. The cart
+ * remembers the final quantity of every product it changed, so ten clicks on
+ * "+" become one row in the next write. Every flush interval the changes of
+ * all dirty carts are written in one transaction of multi-row upserts. A
+ * change is in the table at most max-dirty-millis after it was made (plus the
+ * time the write takes). Changes not written yet are lost if the process
+ * dies, and nothing older than that bound is.
+ *
+ * A product (or user) can be deleted while a cart still has an unwritten line
+ * for it. That line fails the foreign key and would roll back every cart in
+ * the transaction, flush after flush, so the carts are then written one at a
+ * time and the lines whose product or user is gone are dropped and logged.
+ *
+ * Recovery needs no separate step. A cart that is not in memory - after a
+ * restart, or after it was evicted for being idle - is loaded from the table
+ * the first time it is used.
+ *
+ * Each cart has its own lock. The map of carts is a ConcurrentHashMap, so
+ * different users never contend. Checkout runs through withStoredCart,
+ * which writes the cart's pending changes and holds its lock until the
+ * order is placed.
+ *
+ * Only correct while a single application node serves a given user. With
+ * several nodes, turn it off (cart.write-behind.enabled=false) or route users
+ * to the same node.
+ */
+@Primary
+@Component
+@ConditionalOnProperty(name = "cart.write-behind.enabled", havingValue = "true", matchIfMissing = true)
+public class WriteBehindShoppingCartDao implements ShoppingCartDao
+{
+    private static final Logger LOG = LoggerFactory.getLogger(WriteBehindShoppingCartDao.class);
+
+    private final MySqlShoppingCartDao shoppingCartDao;
+    private final ProductDao productDao;
+    private final long idleNanos;
+
+    private final Map<Integer, CartState> carts = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+
+    public WriteBehindShoppingCartDao(MySqlShoppingCartDao shoppingCartDao,
+                                      ProductDao productDao,
+                                      @Value("${cart.write-behind.max-dirty-millis:1000}") long maxDirtyMillis,
+                                      @Value("${cart.write-behind.idle-seconds:1800}") long idleSeconds)
+    {
+        this.shoppingCartDao = shoppingCartDao;
+        this.productDao = productDao;
+        this.idleNanos = TimeUnit.SECONDS.toNanos(idleSeconds);
+
+        // flushing twice per max age keeps every change within the bound
+        long period = Math.max(10, maxDirtyMillis / 2);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cart-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSafely, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public ShoppingCart getByUserId(int userId)
+    {
+        Map<Integer, Integer> quantities = withCart(userId, cart -> new HashMap<>(cart.quantities));
+
+        // all the products in one read, like the JOIN in MySqlShoppingCartDao
+        Map<Integer, Product> products = productDao.getByIds(quantities.keySet());
+
+        ShoppingCart shoppingCart = new ShoppingCart();
+        quantities.forEach((productId, quantity) -> {
+            Product product = products.get(productId);
+            // a product deleted since it was added is left out, the way the JOIN leaves it out
+            if (product != null)
+            {
+                ShoppingCartItem item = new ShoppingCartItem();
+                item.setProduct(product);
+                item.setQuantity(quantity);
+                shoppingCart.add(item);
+            }
+        });
+        return shoppingCart;
+    }
+
+    @Override
+    public void addProducts(int userId, Map<Integer, Integer> quantities)
+    {
+        if (quantities.isEmpty())
+            return;
+
+        withCart(userId, cart -> {
+            quantities.forEach((productId, quantity) -> cart.set(productId, cart.quantities.getOrDefault(productId, 0) + quantity));
+            return null;
+        });
+    }
+
+    @Override
+    public void updateQuantities(int userId, Map<Integer, Integer> quantities)
+    {
+        if (quantities.isEmpty())
+            return;
+
+        withCart(userId, cart -> {
+            quantities.forEach((productId, quantity) -> {
+                if (cart.quantities.containsKey(productId))
+                    cart.set(productId, quantity);
+            });
+            return null;
+        });
+    }
+
+    @Override
+    public void clear(int userId)
+    {
+        withCart(userId, cart -> {
+            cart.quantities.clear();
+            cart.dirty.clear();
+            cart.cleared = true;
+            return null;
+        });
+    }
+
+    @Override
+    public <T> T withStoredCart(int userId, Supplier<T> work)
+    {
+        return withCart(userId, cart -> {
+            // a background write of this cart may be under way; let it land first
+            cart.awaitFlush();
+            if (cart.isDirty())
+                write(List.of(cart));
+
+            try
+            {
+                return work.get();
+            }
+            finally
+            {
+                // the work may have changed the stored cart (checkout empties it); read it again next time
+                cart.evicted = true;
+                carts.remove(userId, cart);
+            }
+        });
+    }
+
+    /**
+     * Writes the changes of every dirty cart, and evicts carts that are clean
+     * and have been idle longer than idle-seconds.
+     */
+    public void flush()
+    {
+        long now = System.nanoTime();
+        List<CartState> dirty = new ArrayList<>();
+        for (CartState cart : carts.values())
+        {
+            // a cart that is busy (e.g. in checkout) is picked up by the next flush
+            if (!cart.lock.tryLock())
+                continue;
+            try
+            {
+                if (cart.isDirty())
+                    dirty.add(cart);
+                else if (!cart.flushing && now - cart.lastUsed > idleNanos)
+                {
+                    cart.evicted = true;
+                    carts.remove(cart.userId, cart);
+                }
+            }
+            finally
+            {
+                cart.lock.unlock();
+            }
+        }
+
+        if (!dirty.isEmpty())
+            write(dirty);
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        flusher.shutdown();
+        try
+        {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        // the last write; anything still dirty after it is logged, since it will be lost
+        flushSafely();
+        long unwritten = carts.values().stream().filter(CartState::isDirty).count();
+        if (unwritten > 0)
+            LOG.error("{} shopping carts could not be written at shutdown", unwritten);
+    }
+
+    private void flushSafely()
+    {
+        try
+        {
+            flush();
+        }
+        catch (RuntimeException e)
+        {
+            // the changes were put back and are retried on the next run
+            LOG.warn("Writing shopping carts failed; retrying on the next flush", e);
+        }
+    }
+
+    // takes the carts' changes, writes them in one transaction, and puts them back if that fails
+    private void write(List<CartState> carts)
+    {
+        Map<CartState, Changes> taken = new LinkedHashMap<>();
+        for (CartState cart : carts)
+        {
+            taken.put(cart, cart.take());
+        }
+
+        Set<CartState> written = new HashSet<>();
+        try
+        {
+            try
+            {
+                writeBack(taken.values());
+                written.addAll(taken.keySet());
+            }
+            catch (RuntimeException e)
+            {
+                if (!MySqlShoppingCartDao.isMissingReference(e))
+                    throw e;
+
+                // one line for a deleted product or user rolled back every cart; write them one at a time
+                for (Map.Entry<CartState, Changes> entry : taken.entrySet())
+                {
+                    writeAlone(entry.getValue());
+                    written.add(entry.getKey());
+                }
+            }
+        }
+        finally
+        {
+            for (Map.Entry<CartState, Changes> entry : taken.entrySet())
+            {
+                entry.getKey().flushed(entry.getValue(), written.contains(entry.getKey()));
+            }
+        }
+    }
+
+    // writes one cart's changes, dropping the lines that can never be written
+    private void writeAlone(Changes changes)
+    {
+        try
+        {
+            writeBack(List.of(changes));
+            return;
+        }
+        catch (RuntimeException e)
+        {
+            if (!MySqlShoppingCartDao.isMissingReference(e))
+                throw e;
+        }
+
+        Set<Integer> existing = productDao.getByIds(changes.quantities.keySet()).keySet();
+        Set<Integer> deleted = new HashSet<>(changes.quantities.keySet());
+        deleted.removeAll(existing);
+        if (!deleted.isEmpty())
+        {
+            LOG.warn("Dropping shopping cart lines of user {} for deleted products {}", changes.userId, deleted);
+            changes.drop(deleted);
+            try
+            {
+                writeBack(List.of(changes));
+                return;
+            }
+            catch (RuntimeException e)
+            {
+                if (!MySqlShoppingCartDao.isMissingReference(e))
+                    throw e;
+            }
+        }
+
+        // every product is there, so the user is not
+        LOG.warn("Dropping the shopping cart of user {}, who no longer exists", changes.userId);
+        changes.drop(new HashSet<>(changes.quantities.keySet()));
+    }
+
+    private void writeBack(Collection<Changes> carts)
+    {
+        Set<Integer> cleared = new HashSet<>();
+        Map<Integer, Map<Integer, Integer>> quantities = new HashMap<>();
+        for (Changes changes : carts)
+        {
+            if (changes.cleared)
+                cleared.add(changes.userId);
+            if (!changes.quantities.isEmpty())
+                quantities.put(changes.userId, changes.quantities);
+        }
+
+        // a cart may have been written by checkout between being picked and being taken
+        if (!cleared.isEmpty() || !quantities.isEmpty())
+            shoppingCartDao.writeBack(cleared, quantities);
+    }
+
+    // runs the action on the user's cart under its lock, loading the cart from the table if needed
+    private <T> T withCart(int userId, Function<CartState, T> action)
+    {
+        while (true)
+        {
+            CartState cart = carts.computeIfAbsent(userId, CartState::new);
+            cart.lock.lock();
+            try
+            {
+                // evicted between the lookup and the lock; start over with a fresh one
+                if (cart.evicted)
+                    continue;
+
+                if (!cart.loaded)
+                {
+                    for (ShoppingCartItem item : shoppingCartDao.getByUserId(userId).getItems().values())
+                    {
+                        cart.quantities.put(item.getProductId(), item.getQuantity());
+                    }
+                    cart.loaded = true;
+                }
+
+                cart.lastUsed = System.nanoTime();
+                return action.apply(cart);
+            }
+            finally
+            {
+                cart.lock.unlock();
+            }
+        }
+    }
+
+    private static final class Changes
+    {
+        private final int userId;
+        private final boolean cleared;
+        private final Map<Integer, Integer> quantities;
+        // lines taken out of quantities because they can never be written
+        private final Set<Integer> dropped = new HashSet<>();
+
+        private Changes(int userId, boolean cleared, Map<Integer, Integer> quantities)
+        {
+            this.userId = userId;
+            this.cleared = cleared;
+            this.quantities = quantities;
+        }
+
+        private void drop(Set<Integer> productIds)
+        {
+            quantities.keySet().removeAll(productIds);
+            dropped.addAll(productIds);
+        }
+    }
+
+    private static final class CartState
+    {
+        private final int userId;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition flushDone = lock.newCondition();
+
+        // all fields below are guarded by lock
+        private final Map<Integer, Integer> quantities = new HashMap<>();
+        // product id -> the quantity the table should end up with; zero deletes the row
+        private Map<Integer, Integer> dirty = new HashMap<>();
+        // the table rows for this user are deleted before the dirty quantities are written
+        private boolean cleared;
+        private boolean flushing;
+        private boolean loaded;
+        private boolean evicted;
+        private long lastUsed;
+
+        private CartState(int userId)
+        {
+            this.userId = userId;
+        }
+
+        private void set(int productId, int quantity)
+        {
+            quantities.put(productId, quantity);
+            dirty.put(productId, quantity);
+        }
+
+        private boolean isDirty()
+        {
+            return cleared || !dirty.isEmpty();
+        }
+
+        private Changes take()
+        {
+            lock.lock();
+            try
+            {
+                Changes changes = new Changes(userId, cleared, dirty);
+                dirty = new HashMap<>();
+                cleared = false;
+                flushing = true;
+                return changes;
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        private void flushed(Changes changes, boolean written)
+        {
+            lock.lock();
+            try
+            {
+                // put the changes back, unless the cart was cleared since take() - then they are obsolete
+                if (!written && !cleared)
+                {
+                    // changes made since take() are newer and win
+                    changes.quantities.forEach(dirty::putIfAbsent);
+                    cleared = changes.cleared;
+                }
+                // a dropped line is not in the table either, unless it was set again since take()
+                for (Integer productId : changes.dropped)
+                {
+                    if (!dirty.containsKey(productId))
+                        quantities.remove(productId);
+                }
+                flushing = false;
+                flushDone.signalAll();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        private void awaitFlush()
+        {
+            while (flushing)
+            {
+                flushDone.awaitUninterruptibly();
+            }
+        }
+    }
+}
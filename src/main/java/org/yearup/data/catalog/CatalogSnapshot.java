@@ -0,0 +1,635 @@
+package org.yearup.data.catalog;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.yearup.data.ProductJsonWriter;
+import org.yearup.models.Product;
+import org.yearup.models.ProductField;
+import org.yearup.models.ProductPage;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * An immutable, pre-indexed copy of the products table.
+ *
+ * The products are kept in {@link ProductColumns} rather than as Product
+ * objects, and every index is an array of row numbers. Rows are held in price
+ * order for the whole catalog, for every category and for every color, so a
+ * search only has to binary search a price range in the most selective index
+ * and filter what is left. The lists returned are views over rows; a Product
+ * is built each time an element is read, which for a JSON response is when it
+ * is serialized. A snapshot is never modified; writes produce a new snapshot
+ * that replaces the old one. The new snapshot copies the columns with the one
+ * row patched and shares every index the write did not touch; the indexes it
+ * did touch have the row removed or inserted in place rather than re-sorted.
+ */
+public final class CatalogSnapshot
+{
+    private final ProductColumns columns;
+    private final RowIndex all;
+    private final Map<Integer, RowIndex> byCategory;
+    private final Map<String, RowIndex> byColor;
+    // the lower-cased color of each color code, for matching the way the MySQL collation does
+    private final String[] colorKeys;
+
+    private CatalogSnapshot(ProductColumns columns)
+    {
+        this.columns = columns;
+        this.colorKeys = colorKeys(columns);
+
+        Map<Integer, IntList> categories = new HashMap<>();
+        Map<String, IntList> colorRows = new HashMap<>();
+        for (int row = 0; row < columns.size(); row++)
+        {
+            categories.computeIfAbsent(columns.categoryId(row), k -> new IntList()).add(row);
+            int colorCode = columns.colorCode(row);
+            if (colorCode >= 0)
+            {
+                colorRows.computeIfAbsent(colorKeys[colorCode], k -> new IntList()).add(row);
+            }
+        }
+
+        this.all = RowIndex.of(columns, IntStream.range(0, columns.size()).toArray());
+        this.byCategory = new HashMap<>();
+        categories.forEach((categoryId, rows) -> byCategory.put(categoryId, RowIndex.of(columns, rows.toArray())));
+        this.byColor = new HashMap<>();
+        colorRows.forEach((color, rows) -> byColor.put(color, RowIndex.of(columns, rows.toArray())));
+    }
+
+    private CatalogSnapshot(ProductColumns columns, RowIndex all, Map<Integer, RowIndex> byCategory, Map<String, RowIndex> byColor)
+    {
+        this.columns = columns;
+        this.colorKeys = colorKeys(columns);
+        this.all = all;
+        this.byCategory = byCategory;
+        this.byColor = byColor;
+    }
+
+    public static CatalogSnapshot of(Collection<Product> products)
+    {
+        // a later product with the same id replaces an earlier one
+        Map<Integer, Product> byId = new TreeMap<>();
+        for (Product product : products)
+        {
+            byId.put(product.getProductId(), product);
+        }
+
+        ProductColumns.Builder builder = new ProductColumns.Builder(byId.size());
+        byId.values().forEach(builder::add);
+        return new CatalogSnapshot(builder.build());
+    }
+
+    /**
+     * Returns a new snapshot in which the given product has been added or replaced.
+     */
+    public CatalogSnapshot with(Product product)
+    {
+        int row = columns.rowOf(product.getProductId());
+        if (row >= 0)
+            return replace(row, product);
+
+        row = columns.insertionRow(product.getProductId());
+        ProductColumns inserted = columns.insert(row, product);
+
+        // every row from the new one on moves down by one; the order within each index does not change
+        Map<Integer, RowIndex> categories = shift(byCategory, row, 1);
+        Map<String, RowIndex> colors = shift(byColor, row, 1);
+        RowIndex newAll = all.shifted(row, 1).withRow(row, inserted.priceCents(row));
+        addRow(categories, inserted.categoryId(row), row, inserted.priceCents(row));
+        String colorKey = colorKeyOf(inserted, row);
+        if (colorKey != null)
+            addRow(colors, colorKey, row, inserted.priceCents(row));
+
+        return new CatalogSnapshot(inserted, newAll, categories, colors);
+    }
+
+    private CatalogSnapshot replace(int row, Product product)
+    {
+        ProductColumns replaced = columns.replace(row, product);
+
+        long oldCents = columns.priceCents(row);
+        long cents = replaced.priceCents(row);
+        int oldCategoryId = columns.categoryId(row);
+        int categoryId = replaced.categoryId(row);
+        String oldColorKey = colorKeyOf(columns, row);
+        String colorKey = colorKeyOf(replaced, row);
+
+        // row numbers stay the same, so only the indexes whose key changed are touched
+        RowIndex newAll = all;
+        if (cents != oldCents)
+            newAll = all.withoutRow(row, oldCents).withRow(row, cents);
+
+        Map<Integer, RowIndex> categories = byCategory;
+        if (cents != oldCents || categoryId != oldCategoryId)
+        {
+            categories = new HashMap<>(byCategory);
+            removeRow(categories, oldCategoryId, row, oldCents);
+            addRow(categories, categoryId, row, cents);
+        }
+
+        Map<String, RowIndex> colors = byColor;
+        if (cents != oldCents || !Objects.equals(colorKey, oldColorKey))
+        {
+            colors = new HashMap<>(byColor);
+            if (oldColorKey != null)
+                removeRow(colors, oldColorKey, row, oldCents);
+            if (colorKey != null)
+                addRow(colors, colorKey, row, cents);
+        }
+
+        return new CatalogSnapshot(replaced, newAll, categories, colors);
+    }
+
+    /**
+     * Returns a new snapshot in which the stock of the given products, by
+     * product id, has been replaced. Products it does not have are ignored.
+     */
+    public CatalogSnapshot withStock(Map<Integer, Integer> stockById)
+    {
+        Map<Integer, Integer> stockByRow = new HashMap<>();
+        stockById.forEach((productId, stock) -> {
+            int row = columns.rowOf(productId);
+            if (row >= 0)
+                stockByRow.put(row, stock);
+        });
+        if (stockByRow.isEmpty())
+            return this;
+
+        // no index is keyed by stock, so all of them are shared
+        return new CatalogSnapshot(columns.withStock(stockByRow), all, byCategory, byColor);
+    }
+
+    /**
+     * Returns a new snapshot without the given product.
+     */
+    public CatalogSnapshot without(int productId)
+    {
+        int row = columns.rowOf(productId);
+        if (row < 0)
+            return this;
+
+        long cents = columns.priceCents(row);
+        Map<Integer, RowIndex> categories = new HashMap<>(byCategory);
+        removeRow(categories, columns.categoryId(row), row, cents);
+        Map<String, RowIndex> colors = new HashMap<>(byColor);
+        String colorKey = colorKeyOf(columns, row);
+        if (colorKey != null)
+            removeRow(colors, colorKey, row, cents);
+
+        // every row after the removed one moves up by one
+        return new CatalogSnapshot(columns.remove(row),
+                                   all.withoutRow(row, cents).shifted(row + 1, -1),
+                                   shift(categories, row + 1, -1),
+                                   shift(colors, row + 1, -1));
+    }
+
+    private static <K> Map<K, RowIndex> shift(Map<K, RowIndex> indexes, int fromRow, int delta)
+    {
+        Map<K, RowIndex> shifted = new HashMap<>();
+        indexes.forEach((key, index) -> shifted.put(key, index.shifted(fromRow, delta)));
+        return shifted;
+    }
+
+    private static <K> void addRow(Map<K, RowIndex> indexes, K key, int row, long cents)
+    {
+        RowIndex index = indexes.get(key);
+        indexes.put(key, index == null ? RowIndex.single(row, cents) : index.withRow(row, cents));
+    }
+
+    private static <K> void removeRow(Map<K, RowIndex> indexes, K key, int row, long cents)
+    {
+        RowIndex index = indexes.get(key).withoutRow(row, cents);
+        if (index.size() == 0)
+            indexes.remove(key);
+        else
+            indexes.put(key, index);
+    }
+
+    public int size()
+    {
+        return columns.size();
+    }
+
+    public Product getById(int productId)
+    {
+        int row = columns.rowOf(productId);
+        return row < 0 ? null : columns.get(row);
+    }
+
+    public List<Product> getAll()
+    {
+        return new Rows(columns, all.rowsInIdOrder);
+    }
+
+    public List<Product> listByCategoryId(int categoryId)
+    {
+        RowIndex index = byCategory.get(categoryId);
+        return index == null ? Collections.emptyList() : new Rows(columns, index.rowsInIdOrder);
+    }
+
+    public List<Product> listFeatured(int limit)
+    {
+        IntList featured = new IntList();
+        for (int row = columns.nextFeatured(0); row >= 0 && featured.size < limit; row = columns.nextFeatured(row + 1))
+        {
+            featured.add(row);
+        }
+        return new Rows(columns, featured.toArray());
+    }
+
+    /**
+     * The first limit products of the category, featured ones first, then in id order.
+     */
+    public List<Product> listTopByCategoryId(int categoryId, int limit)
+    {
+        RowIndex index = byCategory.get(categoryId);
+        if (index == null)
+            return Collections.emptyList();
+
+        int[] rows = index.rowsInIdOrder;
+        IntList top = new IntList();
+        for (int i = 0; i < rows.length && top.size < limit; i++)
+        {
+            if (columns.isFeatured(rows[i]))
+                top.add(rows[i]);
+        }
+        for (int i = 0; i < rows.length && top.size < limit; i++)
+        {
+            if (!columns.isFeatured(rows[i]))
+                top.add(rows[i]);
+        }
+        return new Rows(columns, top.toArray());
+    }
+
+    /**
+     * Same semantics as the SQL search: a null (or -1) category or price and a
+     * null (or empty) color mean "no filter". Color matching ignores case the
+     * way the MySQL collation does. Results are returned in product id order.
+     */
+    public List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color)
+    {
+        boolean filterCategory = categoryId != null && categoryId != -1;
+        boolean filterColor = color != null && !color.isEmpty();
+        String colorKey = filterColor ? colorKey(color) : null;
+
+        if (!filterCategory && !filterColor && isUnbounded(minPrice) && isUnbounded(maxPrice))
+            return getAll();
+
+        RowIndex index;
+        if (filterCategory)
+            index = byCategory.get(categoryId);
+        else if (filterColor)
+            index = byColor.get(colorKey);
+        else
+            index = all;
+
+        if (index == null)
+            return Collections.emptyList();
+
+        int from = isUnbounded(minPrice) ? 0 : index.lowerBound(toCents(minPrice, RoundingMode.CEILING));
+        int to = isUnbounded(maxPrice) ? index.size() : index.upperBound(toCents(maxPrice, RoundingMode.FLOOR));
+
+        // when the category index was used, color still has to be checked
+        boolean checkColor = filterCategory && filterColor;
+
+        IntList results = new IntList();
+        for (int i = from; i < to; i++)
+        {
+            int row = index.byPrice[i];
+            if (checkColor)
+            {
+                int colorCode = columns.colorCode(row);
+                if (colorCode < 0 || !colorKeys[colorCode].equals(colorKey))
+                    continue;
+            }
+            results.add(row);
+        }
+
+        // rows are in id order, so sorting the row numbers sorts by id
+        int[] rows = results.toArray();
+        Arrays.sort(rows);
+        return new Rows(columns, rows);
+    }
+
+    /**
+     * Writes the search results as JSON objects, in the same order, without
+     * building Products.
+     */
+    public void writeSearchJson(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color,
+                                JsonGenerator generator) throws IOException
+    {
+        writeJson(search(categoryId, minPrice, maxPrice, color), generator);
+    }
+
+    public void writeByCategoryIdJson(int categoryId, JsonGenerator generator) throws IOException
+    {
+        writeJson(listByCategoryId(categoryId), generator);
+    }
+
+    private static void writeJson(List<Product> products, JsonGenerator generator) throws IOException
+    {
+        if (products instanceof Rows)
+        {
+            ((Rows) products).writeJson(generator);
+            return;
+        }
+        for (Product product : products)
+        {
+            ProductJsonWriter.write(generator, product);
+        }
+    }
+
+    /**
+     * Returns up to limit search results with an id greater than afterProductId,
+     * plus the id to continue from when more results remain.
+     */
+    public ProductPage page(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color,
+                            int afterProductId, int limit, Set<ProductField> fields)
+    {
+        List<Product> results = search(categoryId, minPrice, maxPrice, color);
+
+        // results are in id order, so the cursor position can be binary searched
+        int lo = 0, hi = results.size();
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (results.get(mid).getProductId() <= afterProductId) lo = mid + 1;
+            else hi = mid;
+        }
+
+        int end = Math.min(results.size(), lo + limit);
+        List<Product> page = results.subList(lo, end);
+        Integer lastProductId = end < results.size() ? page.get(page.size() - 1).getProductId() : null;
+        return new ProductPage(page, fields, lastProductId);
+    }
+
+    private static boolean isUnbounded(BigDecimal price)
+    {
+        return price == null || price.compareTo(BigDecimal.ONE.negate()) == 0;
+    }
+
+    static long toCents(BigDecimal price, RoundingMode rounding)
+    {
+        return ProductColumns.toCents(price, rounding);
+    }
+
+    private static String colorKey(String color)
+    {
+        return color.toLowerCase(Locale.ROOT);
+    }
+
+    private static String[] colorKeys(ProductColumns columns)
+    {
+        String[] colors = columns.colors();
+        String[] keys = new String[colors.length];
+        for (int code = 0; code < colors.length; code++)
+        {
+            keys[code] = colorKey(colors[code]);
+        }
+        return keys;
+    }
+
+    // null when the row has no color
+    private static String colorKeyOf(ProductColumns columns, int row)
+    {
+        int colorCode = columns.colorCode(row);
+        return colorCode < 0 ? null : colorKey(columns.colors()[colorCode]);
+    }
+
+    /**
+     * Rows of one category, one color or the whole catalog, in id order and
+     * sorted by price (ties broken by id) with a parallel array of prices in
+     * cents for the binary searches. Row numbers are in id order, so a tie
+     * broken by row is broken by id.
+     */
+    private static final class RowIndex
+    {
+        private final int[] rowsInIdOrder;
+        private final int[] byPrice;
+        private final long[] cents;
+
+        private RowIndex(int[] rowsInIdOrder, int[] byPrice, long[] cents)
+        {
+            this.rowsInIdOrder = rowsInIdOrder;
+            this.byPrice = byPrice;
+            this.cents = cents;
+        }
+
+        private static RowIndex of(ProductColumns columns, int[] rowsInIdOrder)
+        {
+            // price and row packed into one long sort by price, then by row, with a primitive sort; prices are
+            // DECIMAL(10, 2), under 2^34 cents, which leaves room for the row numbers of any catalog that fits in memory
+            int rowBits = 32 - Integer.numberOfLeadingZeros(columns.size());
+            long rowMask = (1L << rowBits) - 1;
+            long[] keys = new long[rowsInIdOrder.length];
+            for (int i = 0; i < keys.length; i++)
+            {
+                int row = rowsInIdOrder[i];
+                long price = columns.priceCents(row);
+                if (price != (price << rowBits) >> rowBits)
+                    throw new IllegalArgumentException("Price of " + price + " cents is too large to index");
+                keys[i] = (price << rowBits) | row;
+            }
+            Arrays.sort(keys);
+
+            int[] byPrice = new int[keys.length];
+            long[] cents = new long[keys.length];
+            for (int i = 0; i < keys.length; i++)
+            {
+                byPrice[i] = (int) (keys[i] & rowMask);
+                cents[i] = keys[i] >> rowBits;
+            }
+            return new RowIndex(rowsInIdOrder, byPrice, cents);
+        }
+
+        private static RowIndex single(int row, long price)
+        {
+            return new RowIndex(new int[] { row }, new int[] { row }, new long[] { price });
+        }
+
+        /**
+         * Returns a copy with the row, at the given price, inserted in both orders.
+         */
+        private RowIndex withRow(int row, long price)
+        {
+            int idPosition = -Arrays.binarySearch(rowsInIdOrder, row) - 1;
+            int pricePosition = -pricePosition(row, price) - 1;
+            return new RowIndex(inserted(rowsInIdOrder, idPosition, row),
+                                inserted(byPrice, pricePosition, row),
+                                inserted(cents, pricePosition, price));
+        }
+
+        /**
+         * Returns a copy without the row, which is in the index at the given price.
+         */
+        private RowIndex withoutRow(int row, long price)
+        {
+            int idPosition = Arrays.binarySearch(rowsInIdOrder, row);
+            int pricePosition = pricePosition(row, price);
+            return new RowIndex(removed(rowsInIdOrder, idPosition),
+                                removed(byPrice, pricePosition),
+                                removed(cents, pricePosition));
+        }
+
+        /**
+         * Returns a copy in which every row from fromRow on is moved by delta,
+         * or this index if it has no such rows.
+         */
+        private RowIndex shifted(int fromRow, int delta)
+        {
+            if (rowsInIdOrder.length == 0 || rowsInIdOrder[rowsInIdOrder.length - 1] < fromRow)
+                return this;
+
+            int[] ids = rowsInIdOrder.clone();
+            for (int i = ids.length - 1; i >= 0 && ids[i] >= fromRow; i--)
+            {
+                ids[i] += delta;
+            }
+            int[] prices = byPrice.clone();
+            for (int i = 0; i < prices.length; i++)
+            {
+                if (prices[i] >= fromRow)
+                    prices[i] += delta;
+            }
+            return new RowIndex(ids, prices, cents);
+        }
+
+        // the position of the row among the rows at that price, as Arrays.binarySearch reports it
+        private int pricePosition(int row, long price)
+        {
+            return Arrays.binarySearch(byPrice, lowerBound(price), upperBound(price), row);
+        }
+
+        private int size()
+        {
+            return cents.length;
+        }
+
+        /** first position whose price is >= the given cents */
+        private int lowerBound(long value)
+        {
+            int lo = 0, hi = cents.length;
+            while (lo < hi)
+            {
+                int mid = (lo + hi) >>> 1;
+                if (cents[mid] < value) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        /** first position whose price is > the given cents */
+        private int upperBound(long value)
+        {
+            int lo = 0, hi = cents.length;
+            while (lo < hi)
+            {
+                int mid = (lo + hi) >>> 1;
+                if (cents[mid] <= value) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    /**
+     * A read-only list over rows of the columns; each get builds a new Product.
+     */
+    private static final class Rows extends AbstractList<Product> implements RandomAccess
+    {
+        private final ProductColumns columns;
+        private final int[] rows;
+
+        private Rows(ProductColumns columns, int[] rows)
+        {
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        @Override
+        public Product get(int index)
+        {
+            return columns.get(rows[index]);
+        }
+
+        @Override
+        public int size()
+        {
+            return rows.length;
+        }
+
+        private void writeJson(JsonGenerator generator) throws IOException
+        {
+            for (int row : rows)
+            {
+                columns.writeJson(row, generator);
+            }
+        }
+    }
+
+    private static int[] inserted(int[] values, int position, int value)
+    {
+        int[] result = new int[values.length + 1];
+        System.arraycopy(values, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(values, position, result, position + 1, values.length - position);
+        return result;
+    }
+
+    private static long[] inserted(long[] values, int position, long value)
+    {
+        long[] result = new long[values.length + 1];
+        System.arraycopy(values, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(values, position, result, position + 1, values.length - position);
+        return result;
+    }
+
+    private static int[] removed(int[] values, int position)
+    {
+        int[] result = new int[values.length - 1];
+        System.arraycopy(values, 0, result, 0, position);
+        System.arraycopy(values, position + 1, result, position, result.length - position);
+        return result;
+    }
+
+    private static long[] removed(long[] values, int position)
+    {
+        long[] result = new long[values.length - 1];
+        System.arraycopy(values, 0, result, 0, position);
+        System.arraycopy(values, position + 1, result, position, result.length - position);
+        return result;
+    }
+
+    private static final class IntList
+    {
+        private int[] values = new int[16];
+        private int size;
+
+        private void add(int value)
+        {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        private int[] toArray()
+        {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.yearup.data.catalog;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.yearup.data.CategoryChangedEvent;
+import org.yearup.data.ProductChangedEvent;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counters for the catalog, used to answer conditional GETs.
+ *
+ * Every product and category write (as announced by the DAO's change events)
+ * bumps the version of the entity and of its collection. Versions are drawn
+ * from one increasing sequence per table and the ETags include the time the
+ * application started, so an ETag is never reused for different content, not
+ * even after a restart.
+ *
+ * The listeners run last, after the in-memory views (ordered ahead of them) have
+ * applied the change, so a new ETag is never handed out with old content.
+ */
+@Component
+public class CatalogVersions
+{
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final VersionTable products = new VersionTable("p");
+    private final VersionTable categories = new VersionTable("c");
+
+    public Version products()
+    {
+        return products.collection();
+    }
+
+    public Version product(int productId)
+    {
+        return products.entity(productId);
+    }
+
+    public Version categories()
+    {
+        return categories.collection();
+    }
+
+    public Version category(int categoryId)
+    {
+        return categories.entity(categoryId);
+    }
+
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onProductChanged(ProductChangedEvent event)
+    {
+        if (event.getType() == ProductChangedEvent.Type.RELOADED)
+            products.changedAll();
+        else if (event.getType() == ProductChangedEvent.Type.STOCK_CHANGED)
+            products.changed(event.getStock().keySet());
+        else
+            products.changed(event.getProductId());
+    }
+
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onCategoryChanged(CategoryChangedEvent event)
+    {
+        categories.changed(event.getCategoryId());
+    }
+
+    public static final class Version
+    {
+        private final long counter;
+        private final long lastModified;
+        private final String etag;
+
+        private Version(long counter, long lastModified, String etag)
+        {
+            this.counter = counter;
+            this.lastModified = lastModified;
+            this.etag = etag;
+        }
+
+        public long getCounter()
+        {
+            return counter;
+        }
+
+        /**
+         * Milliseconds since the epoch.
+         */
+        public long getLastModified()
+        {
+            return lastModified;
+        }
+
+        /**
+         * A strong, quoted entity tag.
+         */
+        public String getEtag()
+        {
+            return etag;
+        }
+    }
+
+    private final class VersionTable
+    {
+        private final String prefix;
+        private final AtomicLong sequence = new AtomicLong();
+        private final Map<Integer, Version> entities = new ConcurrentHashMap<>();
+        private volatile Version collection;
+        // every entity is at least at this version; it moves up when the whole table changed at once
+        private volatile Version floor;
+
+        private VersionTable(String prefix)
+        {
+            this.prefix = prefix;
+            this.collection = version(prefix, 0, System.currentTimeMillis());
+            this.floor = collection;
+        }
+
+        private Version collection()
+        {
+            return collection;
+        }
+
+        private Version entity(int id)
+        {
+            Version base = floor;
+            Version changed = entities.get(id);
+            if (changed != null && changed.counter > base.counter)
+                return changed;
+            return version(prefix + id, base.counter, base.lastModified);
+        }
+
+        private void changed(int id)
+        {
+            changed(List.of(id));
+        }
+
+        // one new version shared by every entity that changed together
+        private void changed(Collection<Integer> ids)
+        {
+            long counter = sequence.incrementAndGet();
+            long now = System.currentTimeMillis();
+            for (int id : ids)
+            {
+                entities.put(id, version(prefix + id, counter, now));
+            }
+            collection = version(prefix, counter, now);
+        }
+
+        private void changedAll()
+        {
+            long counter = sequence.incrementAndGet();
+            long now = System.currentTimeMillis();
+            floor = version(prefix, counter, now);
+            entities.clear();
+            collection = floor;
+        }
+
+        private Version version(String name, long counter, long lastModified)
+        {
+            return new Version(counter, lastModified, "\"" + name + "-" + epoch + "-" + counter + "\"");
+        }
+    }
+}
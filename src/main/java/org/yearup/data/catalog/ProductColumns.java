@@ -0,0 +1,480 @@
+package org.yearup.data.catalog;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.yearup.data.ProductJsonWriter;
+import org.yearup.models.Product;
+import org.yearup.models.ProductField;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Products stored column by column, one row per product in product id order.
+ *
+ * Prices are long cents, ids, categories and stock are int arrays, featured is
+ * a bit set, colors are codes into a small dictionary, and the text columns
+ * are the UTF-8 bytes of all rows in one byte array. A catalog of any size is
+ * a couple of dozen objects with no references between rows, instead of half a
+ * dozen objects per product, so it is far smaller and the collector has almost
+ * nothing to trace.
+ *
+ * {@link #get(int)} builds a new Product from a row; nothing else creates them.
+ * Instances are immutable; {@link #replace}, {@link #insert}, {@link #remove} and
+ * {@link #withStock} return a copy with rows changed, without re-encoding the others.
+ */
+final class ProductColumns
+{
+    private final int size;
+    private final int[] ids;
+    private final long[] priceCents;
+    private final int[] categoryIds;
+    private final int[] stock;
+    private final BitSet featured;
+    private final int[] colorCodes;
+    private final String[] colors;
+    private final TextColumn names;
+    private final TextColumn descriptions;
+    private final TextColumn imageUrls;
+
+    private ProductColumns(Builder builder)
+    {
+        this.size = builder.size;
+        this.ids = Arrays.copyOf(builder.ids, size);
+        this.priceCents = Arrays.copyOf(builder.priceCents, size);
+        this.categoryIds = Arrays.copyOf(builder.categoryIds, size);
+        this.stock = Arrays.copyOf(builder.stock, size);
+        this.featured = (BitSet) builder.featured.clone();
+        this.colorCodes = Arrays.copyOf(builder.colorCodes, size);
+        this.colors = builder.colors.toArray();
+        this.names = builder.names.build(size);
+        this.descriptions = builder.descriptions.build(size);
+        this.imageUrls = builder.imageUrls.build(size);
+    }
+
+    private ProductColumns(int size, int[] ids, long[] priceCents, int[] categoryIds, int[] stock, BitSet featured,
+                           int[] colorCodes, String[] colors, TextColumn names, TextColumn descriptions, TextColumn imageUrls)
+    {
+        this.size = size;
+        this.ids = ids;
+        this.priceCents = priceCents;
+        this.categoryIds = categoryIds;
+        this.stock = stock;
+        this.featured = featured;
+        this.colorCodes = colorCodes;
+        this.colors = colors;
+        this.names = names;
+        this.descriptions = descriptions;
+        this.imageUrls = imageUrls;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return the row of the product, or -1 if there is none
+     */
+    int rowOf(int productId)
+    {
+        int row = Arrays.binarySearch(ids, 0, size, productId);
+        return row < 0 ? -1 : row;
+    }
+
+    /**
+     * @return the row the product has, or would have if it were inserted
+     */
+    int insertionRow(int productId)
+    {
+        int row = Arrays.binarySearch(ids, 0, size, productId);
+        return row < 0 ? -row - 1 : row;
+    }
+
+    /**
+     * Returns a copy in which the product's row, which must exist, holds the given product.
+     */
+    ProductColumns replace(int row, Product product)
+    {
+        return splice(row, 1, product);
+    }
+
+    /**
+     * Returns a copy with the product at the given row, which must be its
+     * {@link #insertionRow}; later rows move down by one.
+     */
+    ProductColumns insert(int row, Product product)
+    {
+        return splice(row, 0, product);
+    }
+
+    /**
+     * Returns a copy without the given row; later rows move up by one.
+     */
+    ProductColumns remove(int row)
+    {
+        return splice(row, 1, null);
+    }
+
+    /**
+     * Returns a copy in which the stock of the given rows is replaced, keyed by
+     * row; every other column is shared.
+     */
+    ProductColumns withStock(Map<Integer, Integer> stockByRow)
+    {
+        int[] newStock = stock.clone();
+        stockByRow.forEach((row, quantity) -> newStock[row] = quantity);
+        return new ProductColumns(size, ids, priceCents, categoryIds, newStock, featured, colorCodes, colors, names, descriptions, imageUrls);
+    }
+
+    // replaces the removed (0 or 1) rows at row with the product, if there is one
+    private ProductColumns splice(int row, int removed, Product product)
+    {
+        int added = product == null ? 0 : 1;
+        int newSize = size - removed + added;
+
+        int[] newIds = splice(ids, size, row, removed, added);
+        long[] newPriceCents = splice(priceCents, size, row, removed, added);
+        int[] newCategoryIds = splice(categoryIds, size, row, removed, added);
+        int[] newStock = splice(stock, size, row, removed, added);
+        BitSet newFeatured = splice(featured, size, row, removed, added);
+        int[] newColorCodes = splice(colorCodes, size, row, removed, added);
+        String[] newColors = colors;
+
+        if (product != null)
+        {
+            newIds[row] = product.getProductId();
+            newPriceCents[row] = toCents(product.getPrice(), RoundingMode.HALF_UP);
+            newCategoryIds[row] = product.getCategoryId();
+            newStock[row] = product.getStock();
+            newFeatured.set(row, product.isFeatured());
+
+            String color = product.getColor();
+            int colorCode = color == null ? -1 : Arrays.asList(colors).indexOf(color);
+            if (color != null && colorCode < 0)
+            {
+                // a color the catalog has not had before gets the next code
+                newColors = Arrays.copyOf(colors, colors.length + 1);
+                colorCode = colors.length;
+                newColors[colorCode] = color;
+            }
+            newColorCodes[row] = colorCode;
+        }
+
+        return new ProductColumns(newSize, newIds, newPriceCents, newCategoryIds, newStock, newFeatured, newColorCodes, newColors,
+                                  names.splice(row, removed, product != null, product == null ? null : product.getName()),
+                                  descriptions.splice(row, removed, product != null, product == null ? null : product.getDescription()),
+                                  imageUrls.splice(row, removed, product != null, product == null ? null : product.getImageUrl()));
+    }
+
+    private static int[] splice(int[] values, int size, int row, int removed, int added)
+    {
+        int[] result = new int[size - removed + added];
+        System.arraycopy(values, 0, result, 0, row);
+        System.arraycopy(values, row + removed, result, row + added, size - row - removed);
+        return result;
+    }
+
+    private static long[] splice(long[] values, int size, int row, int removed, int added)
+    {
+        long[] result = new long[size - removed + added];
+        System.arraycopy(values, 0, result, 0, row);
+        System.arraycopy(values, row + removed, result, row + added, size - row - removed);
+        return result;
+    }
+
+    private static BitSet splice(BitSet bits, int size, int row, int removed, int added)
+    {
+        BitSet result = bits.get(0, row);
+        for (int bit = bits.nextSetBit(row + removed); bit >= 0 && bit < size; bit = bits.nextSetBit(bit + 1))
+        {
+            result.set(bit - removed + added);
+        }
+        return result;
+    }
+
+    Product get(int row)
+    {
+        int colorCode = colorCodes[row];
+        return new Product(ids[row],
+                           names.get(row),
+                           BigDecimal.valueOf(priceCents[row], 2),
+                           categoryIds[row],
+                           descriptions.get(row),
+                           colorCode < 0 ? null : colors[colorCode],
+                           stock[row],
+                           featured.get(row),
+                           imageUrls.get(row));
+    }
+
+    /**
+     * Writes a row as the JSON object Jackson writes for its Product, without
+     * building the Product; the text goes to the generator as stored UTF-8.
+     */
+    void writeJson(int row, JsonGenerator generator) throws IOException
+    {
+        generator.writeStartObject();
+        for (ProductField field : ProductField.values())
+        {
+            generator.writeFieldName(ProductJsonWriter.nameOf(field));
+            switch (field)
+            {
+                case PRODUCT_ID: generator.writeNumber(ids[row]); break;
+                case NAME: names.writeJson(row, generator); break;
+                case PRICE: generator.writeNumber(BigDecimal.valueOf(priceCents[row], 2)); break;
+                case CATEGORY_ID: generator.writeNumber(categoryIds[row]); break;
+                case DESCRIPTION: descriptions.writeJson(row, generator); break;
+                case COLOR:
+                    int colorCode = colorCodes[row];
+                    generator.writeString(colorCode < 0 ? null : colors[colorCode]);
+                    break;
+                case STOCK: generator.writeNumber(stock[row]); break;
+                case IMAGE_URL: imageUrls.writeJson(row, generator); break;
+                case FEATURED: generator.writeBoolean(featured.get(row)); break;
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    long priceCents(int row)
+    {
+        return priceCents[row];
+    }
+
+    int categoryId(int row)
+    {
+        return categoryIds[row];
+    }
+
+    boolean isFeatured(int row)
+    {
+        return featured.get(row);
+    }
+
+    int nextFeatured(int fromRow)
+    {
+        int row = featured.nextSetBit(fromRow);
+        return row < size ? row : -1;
+    }
+
+    /**
+     * @return the row's color code, or -1 for no color
+     */
+    int colorCode(int row)
+    {
+        return colorCodes[row];
+    }
+
+    /**
+     * The distinct colors, indexed by color code.
+     */
+    String[] colors()
+    {
+        return colors.clone();
+    }
+
+    /**
+     * Prices are stored in cents; the products table keeps two decimals.
+     */
+    static long toCents(BigDecimal price, RoundingMode rounding)
+    {
+        return price.movePointRight(2).setScale(0, rounding).longValueExact();
+    }
+
+    /**
+     * Collects rows in ascending product id order.
+     */
+    static final class Builder
+    {
+        private int size;
+        private int[] ids;
+        private long[] priceCents;
+        private int[] categoryIds;
+        private int[] stock;
+        private final BitSet featured = new BitSet();
+        private int[] colorCodes;
+        private final ColorDictionary colors = new ColorDictionary();
+        private final TextColumn.Builder names = new TextColumn.Builder();
+        private final TextColumn.Builder descriptions = new TextColumn.Builder();
+        private final TextColumn.Builder imageUrls = new TextColumn.Builder();
+
+        Builder(int expectedSize)
+        {
+            int capacity = Math.max(16, expectedSize);
+            ids = new int[capacity];
+            priceCents = new long[capacity];
+            categoryIds = new int[capacity];
+            stock = new int[capacity];
+            colorCodes = new int[capacity];
+        }
+
+        Builder add(Product product)
+        {
+            int row = nextRow(product.getProductId());
+            priceCents[row] = toCents(product.getPrice(), RoundingMode.HALF_UP);
+            categoryIds[row] = product.getCategoryId();
+            stock[row] = product.getStock();
+            featured.set(row, product.isFeatured());
+            colorCodes[row] = product.getColor() == null ? -1 : colors.codeOf(product.getColor());
+            names.add(product.getName());
+            descriptions.add(product.getDescription());
+            imageUrls.add(product.getImageUrl());
+            return this;
+        }
+
+        ProductColumns build()
+        {
+            return new ProductColumns(this);
+        }
+
+        private int nextRow(int productId)
+        {
+            if (size > 0 && ids[size - 1] >= productId)
+                throw new IllegalArgumentException("Rows must be added in ascending product id order, got " + productId + " after " + ids[size - 1]);
+
+            if (size == ids.length)
+            {
+                int capacity = size + (size >> 1);
+                ids = Arrays.copyOf(ids, capacity);
+                priceCents = Arrays.copyOf(priceCents, capacity);
+                categoryIds = Arrays.copyOf(categoryIds, capacity);
+                stock = Arrays.copyOf(stock, capacity);
+                colorCodes = Arrays.copyOf(colorCodes, capacity);
+            }
+            ids[size] = productId;
+            return size++;
+        }
+    }
+
+    private static final class ColorDictionary
+    {
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        private int codeOf(String color)
+        {
+            return codes.computeIfAbsent(color, k -> codes.size());
+        }
+
+        private String[] toArray()
+        {
+            String[] colors = new String[codes.size()];
+            codes.forEach((color, code) -> colors[code] = color);
+            return colors;
+        }
+    }
+
+    /**
+     * The UTF-8 bytes of every row back to back, with the start of each row in
+     * a parallel array. Null values are marked in a bit set.
+     */
+    private static final class TextColumn
+    {
+        private final byte[] bytes;
+        private final int[] offsets;
+        private final BitSet nulls;
+
+        private TextColumn(byte[] bytes, int[] offsets, BitSet nulls)
+        {
+            this.bytes = bytes;
+            this.offsets = offsets;
+            this.nulls = nulls;
+        }
+
+        private String get(int row)
+        {
+            if (nulls.get(row))
+                return null;
+            return new String(bytes, offsets[row], offsets[row + 1] - offsets[row], StandardCharsets.UTF_8);
+        }
+
+        private void writeJson(int row, JsonGenerator generator) throws IOException
+        {
+            if (nulls.get(row))
+                generator.writeNull();
+            else
+                ProductJsonWriter.writeUtf8String(generator, bytes, offsets[row], offsets[row + 1] - offsets[row]);
+        }
+
+        /**
+         * Returns a copy with the removed (0 or 1) rows at row replaced by the
+         * value when add is set; the other rows' bytes are copied in two blocks.
+         */
+        private TextColumn splice(int row, int removed, boolean add, String value)
+        {
+            int rows = offsets.length - 1;
+            int addedRows = add ? 1 : 0;
+            byte[] utf8 = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+
+            int start = offsets[row];
+            int end = offsets[row + removed];
+            int delta = utf8.length - (end - start);
+
+            byte[] newBytes = new byte[bytes.length + delta];
+            System.arraycopy(bytes, 0, newBytes, 0, start);
+            System.arraycopy(utf8, 0, newBytes, start, utf8.length);
+            System.arraycopy(bytes, end, newBytes, start + utf8.length, bytes.length - end);
+
+            int[] newOffsets = new int[rows - removed + addedRows + 1];
+            System.arraycopy(offsets, 0, newOffsets, 0, row + 1);
+            if (add)
+                newOffsets[row + 1] = start + utf8.length;
+            for (int i = row + removed + 1; i <= rows; i++)
+            {
+                newOffsets[i - removed + addedRows] = offsets[i] + delta;
+            }
+
+            BitSet newNulls = ProductColumns.splice(nulls, rows, row, removed, addedRows);
+            if (add && value == null)
+                newNulls.set(row);
+
+            return new TextColumn(newBytes, newOffsets, newNulls);
+        }
+
+        private static final class Builder
+        {
+            private byte[] bytes = new byte[1024];
+            private int length;
+            // offsets[row] is where the row starts; the entry after the last row is where it ends
+            private int[] offsets = new int[17];
+            private int rows;
+            private final BitSet nulls = new BitSet();
+
+            private void add(String value)
+            {
+                if (value == null)
+                {
+                    nulls.set(rows);
+                    append(new byte[0], 0, 0);
+                }
+                else
+                {
+                    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                    append(utf8, 0, utf8.length);
+                }
+            }
+
+            private void append(byte[] value, int from, int count)
+            {
+                if (length + count > bytes.length)
+                    bytes = Arrays.copyOf(bytes, Math.max(length + count, bytes.length * 2));
+                System.arraycopy(value, from, bytes, length, count);
+                length += count;
+
+                if (rows + 2 > offsets.length)
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                rows++;
+                offsets[rows] = length;
+            }
+
+            private TextColumn build(int size)
+            {
+                return new TextColumn(Arrays.copyOf(bytes, length), Arrays.copyOf(offsets, size + 1), (BitSet) nulls.clone());
+            }
+        }
+    }
+}
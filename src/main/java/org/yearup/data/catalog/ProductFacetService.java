@@ -0,0 +1,141 @@
+package org.yearup.data.catalog;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProductChangedEvent;
+import org.yearup.data.ProductDao;
+import org.yearup.data.cache.CacheRegistry;
+import org.yearup.data.cache.TtlCache;
+import org.yearup.models.Product;
+import org.yearup.models.ProductFacets;
+import org.yearup.models.ProductFacets.CategoryFacet;
+import org.yearup.models.ProductFacets.ColorFacet;
+import org.yearup.models.ProductFacets.PriceBucket;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Computes {@link ProductFacets} for a set of search filters in a single scan
+ * of the matching products. With the catalog snapshot on, that scan is in
+ * memory; otherwise it is one streamed query.
+ *
+ * Results are cached per filter set. The key includes a counter that every
+ * product create, update, delete and reload moves on, so a facet count
+ * computed before such a write can never be served after it; the entries of
+ * older counters age out. Stock changes from checkouts leave the counter alone,
+ * since no facet depends on stock.
+ */
+@Component
+public class ProductFacetService
+{
+    private final ProductDao productDao;
+    private final AtomicLong version = new AtomicLong();
+    private final TtlCache<String, ProductFacets> cache;
+    private final List<BigDecimal> bucketEdges;
+
+    public ProductFacetService(ProductDao productDao,
+                               CacheRegistry cacheRegistry,
+                               @Value("${products.facets.price-buckets:0,25,50,100,250,500,1000}") String priceBuckets,
+                               @Value("${products.facets.cache-seconds:300}") long cacheSeconds,
+                               @Value("${products.facets.cache-size:1000}") int cacheSize)
+    {
+        this.productDao = productDao;
+        this.cache = cacheRegistry.create("products.facets", cacheSize, cacheSeconds, TimeUnit.SECONDS);
+        this.bucketEdges = Arrays.stream(priceBuckets.split(","))
+                .map(String::trim)
+                .map(BigDecimal::new)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    public ProductFacets getFacets(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color)
+    {
+        String key = version.get() + "|" + categoryId + "|" + minPrice + "|" + maxPrice + "|"
+                + (color == null ? "" : color.toLowerCase(Locale.ROOT));
+
+        return cache.get(key, k -> {
+            FacetCounter counter = new FacetCounter(bucketEdges);
+            productDao.streamSearch(categoryId, minPrice, maxPrice, color, counter::add);
+            return counter.toFacets();
+        });
+    }
+
+    // last, like CatalogVersions, so the new counter is only used once the snapshot has the write
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onProductChanged(ProductChangedEvent event)
+    {
+        if (event.getType() != ProductChangedEvent.Type.STOCK_CHANGED)
+            version.incrementAndGet();
+    }
+
+    /**
+     * Accumulates every facet from one pass over the products.
+     */
+    static final class FacetCounter
+    {
+        private final Map<Integer, CategoryFacet> categories = new TreeMap<>();
+        // keyed by lower-cased color so "Black" and "black" count together, as they match together in search
+        private final Map<String, ColorFacet> colors = new TreeMap<>();
+        private final List<BigDecimal> edges;
+        private final List<PriceBucket> buckets = new ArrayList<>();
+        private int total;
+
+        FacetCounter(List<BigDecimal> edges)
+        {
+            this.edges = edges;
+            for (int i = 0; i < edges.size(); i++)
+            {
+                buckets.add(new PriceBucket(edges.get(i), i + 1 < edges.size() ? edges.get(i + 1) : null));
+            }
+        }
+
+        void add(Product product)
+        {
+            total++;
+            categories.computeIfAbsent(product.getCategoryId(), CategoryFacet::new).add(product.getPrice());
+
+            if (product.getColor() != null && !product.getColor().isEmpty())
+                colors.computeIfAbsent(product.getColor().toLowerCase(Locale.ROOT), k -> new ColorFacet(product.getColor())).add();
+
+            int bucket = bucketOf(product.getPrice());
+            if (bucket >= 0)
+                buckets.get(bucket).add();
+        }
+
+        // the last edge not above the price, by binary search; -1 when the price is below the first edge
+        private int bucketOf(BigDecimal price)
+        {
+            int lo = 0, hi = edges.size();
+            while (lo < hi)
+            {
+                int mid = (lo + hi) >>> 1;
+                if (edges.get(mid).compareTo(price) <= 0) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo - 1;
+        }
+
+        ProductFacets toFacets()
+        {
+            ProductFacets facets = new ProductFacets();
+            facets.setTotal(total);
+            facets.setCategories(new ArrayList<>(categories.values()));
+            facets.setColors(new ArrayList<>(colors.values()));
+            facets.setPrices(buckets);
+            return facets;
+        }
+    }
+}
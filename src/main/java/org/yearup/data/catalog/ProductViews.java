@@ -0,0 +1,280 @@
+package org.yearup.data.catalog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProductChangedEvent;
+import org.yearup.data.ProductDao;
+import org.yearup.models.Product;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Materialized views over the products table: the featured products, the
+ * in-stock products of each category, and the products whose stock is below
+ * the low-stock threshold.
+ *
+ * The views are loaded once and then kept current from the
+ * {@link ProductChangedEvent}s of product writes and checkouts, one product at
+ * a time: each event moves that product in or out of the views it belongs to.
+ * Each view is a sorted concurrent set, so reading one costs only the size of
+ * the result, and readers never take the lock.
+ *
+ * The views hold product ids, not products. A read looks the products of its
+ * page up in the catalog ({@link ProductDao#getByIds}, served from the
+ * {@link CatalogSnapshot} when it is enabled), so the catalog is kept in
+ * memory once.
+ */
+@Component
+public class ProductViews
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ProductViews.class);
+
+    private final ProductDao productDao;
+    private final int lowStockThreshold;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Views views;
+
+    public ProductViews(ProductDao productDao,
+                        @Value("${inventory.low-stock-threshold:5}") int lowStockThreshold)
+    {
+        this.productDao = productDao;
+        this.lowStockThreshold = lowStockThreshold;
+    }
+
+    public int getLowStockThreshold()
+    {
+        return lowStockThreshold;
+    }
+
+    /**
+     * Featured products in id order.
+     */
+    public List<Product> featured(int limit)
+    {
+        return products(first(current().featured, limit));
+    }
+
+    /**
+     * Products of the category with stock left, in id order.
+     */
+    public List<Product> inStock(int categoryId, int limit)
+    {
+        NavigableSet<Integer> category = current().inStockByCategory.get(categoryId);
+        return category == null ? new ArrayList<>() : products(first(category, limit));
+    }
+
+    /**
+     * Products whose stock is below the threshold, lowest stock first.
+     */
+    public List<Product> lowStock(int limit)
+    {
+        List<Integer> productIds = new ArrayList<>(Math.min(limit, 64));
+        for (long key : current().lowStock)
+        {
+            if (productIds.size() >= limit)
+                break;
+            productIds.add(Views.productId(key));
+        }
+        return products(productIds);
+    }
+
+    @EventListener
+    @Order(0)
+    public void onProductChanged(ProductChangedEvent event)
+    {
+        writeLock.lock();
+        try
+        {
+            // nothing loaded yet - the first read will see the change
+            if (views == null)
+                return;
+
+            if (event.getType() == ProductChangedEvent.Type.RELOADED)
+                views = load();
+            else if (event.getType() == ProductChangedEvent.Type.DELETED)
+                views.remove(event.getProductId());
+            else if (event.getType() == ProductChangedEvent.Type.STOCK_CHANGED)
+                event.getStock().forEach(views::putStock);
+            else
+                views.put(event.getProduct().getProductId(), Placement.of(event.getProduct()));
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    private Views current()
+    {
+        Views current = views;
+        if (current != null)
+            return current;
+
+        // shared with the event listener, so a change committed during the load is applied after it
+        writeLock.lock();
+        try
+        {
+            if (views == null)
+                views = load();
+            return views;
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    private Views load()
+    {
+        long start = System.nanoTime();
+        Views loaded = new Views(lowStockThreshold);
+        for (Product product : productDao.getAllProducts())
+        {
+            loaded.put(product.getProductId(), Placement.of(product));
+        }
+        LOG.info("Loaded product views of {} products in {} ms", loaded.placements.size(), (System.nanoTime() - start) / 1_000_000);
+        return loaded;
+    }
+
+    // the products in the order of the ids; one deleted since the view was read is left out
+    private List<Product> products(List<Integer> productIds)
+    {
+        Map<Integer, Product> products = productDao.getByIds(productIds);
+        List<Product> results = new ArrayList<>(productIds.size());
+        for (Integer productId : productIds)
+        {
+            Product product = products.get(productId);
+            if (product != null)
+                results.add(product);
+        }
+        return results;
+    }
+
+    private static List<Integer> first(NavigableSet<Integer> productIds, int limit)
+    {
+        List<Integer> results = new ArrayList<>(Math.min(limit, 64));
+        for (Integer productId : productIds)
+        {
+            if (results.size() >= limit)
+                break;
+            results.add(productId);
+        }
+        return results;
+    }
+
+    // the fields of a product that decide which views it is in
+    private static final class Placement
+    {
+        private final int categoryId;
+        private final int stock;
+        private final boolean featured;
+
+        private Placement(int categoryId, int stock, boolean featured)
+        {
+            this.categoryId = categoryId;
+            this.stock = stock;
+            this.featured = featured;
+        }
+
+        private static Placement of(Product product)
+        {
+            return new Placement(product.getCategoryId(), product.getStock(), product.isFeatured());
+        }
+    }
+
+    private static final class Views
+    {
+        private final int lowStockThreshold;
+
+        // the last placement of every product, to know which entries a change replaces; guarded by writeLock
+        private final Map<Integer, Placement> placements = new HashMap<>();
+
+        private final ConcurrentSkipListSet<Integer> featured = new ConcurrentSkipListSet<>();
+        private final Map<Integer, ConcurrentSkipListSet<Integer>> inStockByCategory = new ConcurrentHashMap<>();
+        // stock in the high 32 bits and product id in the low 32, so iteration is lowest stock first
+        private final ConcurrentSkipListSet<Long> lowStock = new ConcurrentSkipListSet<>();
+
+        private Views(int lowStockThreshold)
+        {
+            this.lowStockThreshold = lowStockThreshold;
+        }
+
+        // new entries are written before stale ones are removed, so a reader may
+        // briefly see a product twice in the low-stock view but never miss it
+        private void put(int productId, Placement placement)
+        {
+            Placement previous = placements.put(productId, placement);
+
+            if (placement.featured)
+                featured.add(productId);
+            else
+                featured.remove(productId);
+
+            if (placement.stock > 0)
+                inStockByCategory.computeIfAbsent(placement.categoryId, k -> new ConcurrentSkipListSet<>()).add(productId);
+            if (previous != null && previous.stock > 0
+                    && (placement.stock <= 0 || previous.categoryId != placement.categoryId))
+                removeInStock(productId, previous);
+
+            if (isLowStock(placement))
+                lowStock.add(lowStockKey(productId, placement));
+            if (previous != null && isLowStock(previous) && lowStockKey(productId, previous) != lowStockKey(productId, placement))
+                lowStock.remove(lowStockKey(productId, previous));
+        }
+
+        private void putStock(int productId, int stock)
+        {
+            Placement previous = placements.get(productId);
+            if (previous != null)
+                put(productId, new Placement(previous.categoryId, stock, previous.featured));
+        }
+
+        private void remove(int productId)
+        {
+            Placement previous = placements.remove(productId);
+            if (previous == null)
+                return;
+
+            featured.remove(productId);
+            if (previous.stock > 0)
+                removeInStock(productId, previous);
+            if (isLowStock(previous))
+                lowStock.remove(lowStockKey(productId, previous));
+        }
+
+        private void removeInStock(int productId, Placement placement)
+        {
+            ConcurrentSkipListSet<Integer> category = inStockByCategory.get(placement.categoryId);
+            if (category != null)
+                category.remove(productId);
+        }
+
+        private boolean isLowStock(Placement placement)
+        {
+            return placement.stock < lowStockThreshold;
+        }
+
+        private static long lowStockKey(int productId, Placement placement)
+        {
+            // negative stock sorts with zero
+            return ((long) Math.max(0, placement.stock) << 32) | (productId & 0xFFFFFFFFL);
+        }
+
+        private static int productId(long lowStockKey)
+        {
+            return (int) lowStockKey;
+        }
+    }
+}
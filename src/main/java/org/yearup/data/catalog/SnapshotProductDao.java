@@ -0,0 +1,243 @@
+package org.yearup.data.catalog;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProductChangedEvent;
+import org.yearup.data.ProductDao;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.models.Product;
+import org.yearup.models.ProductField;
+import org.yearup.models.ProductPage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serves catalog reads from an in-memory {@link CatalogSnapshot} and sends
+ * writes to MySQL.
+ *
+ * The snapshot is loaded from the database on first use. After that the
+ * {@link ProductChangedEvent}s published by {@link MySqlProductDao} are applied
+ * to it copy-on-write, and the new snapshot replaces the old one in a single
+ * volatile write, so readers never see a half-applied change and never block.
+ * The snapshot stores products in columns, so the Products returned are built
+ * on each read and belong to the caller.
+ */
+@Primary
+@Component
+@ConditionalOnProperty(name = "catalog.snapshot.enabled", havingValue = "true", matchIfMissing = true)
+public class SnapshotProductDao implements ProductDao
+{
+    private static final Logger LOG = LoggerFactory.getLogger(SnapshotProductDao.class);
+
+    private final MySqlProductDao productDao;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile CatalogSnapshot snapshot;
+
+    public SnapshotProductDao(MySqlProductDao productDao)
+    {
+        this.productDao = productDao;
+    }
+
+    @Override
+    public List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color)
+    {
+        return current().search(categoryId, minPrice, maxPrice, color);
+    }
+
+    @Override
+    public ProductPage searchPage(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color,
+                                  int afterProductId, int limit, Set<ProductField> fields)
+    {
+        return current().page(categoryId, minPrice, maxPrice, color, afterProductId, limit, fields);
+    }
+
+    @Override
+    public List<Product> listByCategoryId(int categoryId)
+    {
+        return current().listByCategoryId(categoryId);
+    }
+
+    @Override
+    public List<Product> listFeatured(int limit)
+    {
+        return current().listFeatured(limit);
+    }
+
+    @Override
+    public List<Product> listTopByCategoryId(int categoryId, int limit)
+    {
+        return current().listTopByCategoryId(categoryId, limit);
+    }
+
+    @Override
+    public Product getById(int productId)
+    {
+        return current().getById(productId);
+    }
+
+    @Override
+    public Map<Integer, Product> getByIds(Collection<Integer> productIds)
+    {
+        // one snapshot for all of them, so they are read as of the same moment
+        CatalogSnapshot snapshot = current();
+        Map<Integer, Product> products = new HashMap<>();
+        for (int productId : productIds)
+        {
+            Product product = snapshot.getById(productId);
+            if (product != null)
+                products.put(productId, product);
+        }
+        return products;
+    }
+
+    @Override
+    public List<Product> getAllProducts()
+    {
+        return current().getAll();
+    }
+
+    @Override
+    public void streamSearch(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color, Consumer<Product> consumer)
+    {
+        current().search(categoryId, minPrice, maxPrice, color).forEach(consumer);
+    }
+
+    @Override
+    public void writeSearchJson(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color, JsonGenerator generator)
+    {
+        try
+        {
+            current().writeSearchJson(categoryId, minPrice, maxPrice, color, generator);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void writeByCategoryIdJson(int categoryId, JsonGenerator generator)
+    {
+        try
+        {
+            current().writeByCategoryIdJson(categoryId, generator);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Product create(Product product)
+    {
+        return productDao.create(product);
+    }
+
+    @Override
+    public int createAll(Iterator<Product> products, int batchSize, BiConsumer<Integer, RuntimeException> onError)
+    {
+        return productDao.createAll(products, batchSize, onError);
+    }
+
+    @Override
+    public boolean update(int productId, Product product)
+    {
+        return productDao.update(productId, product);
+    }
+
+    @Override
+    public boolean delete(int productId)
+    {
+        return productDao.delete(productId);
+    }
+
+    /**
+     * Discards the current snapshot and loads a fresh one from the database.
+     */
+    public void refresh()
+    {
+        writeLock.lock();
+        try
+        {
+            snapshot = load();
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    @EventListener
+    @Order(0)
+    public void onProductChanged(ProductChangedEvent event)
+    {
+        writeLock.lock();
+        try
+        {
+            // nothing loaded yet - the first read will see the change
+            if (snapshot == null)
+                return;
+
+            if (event.getType() == ProductChangedEvent.Type.RELOADED)
+                snapshot = load();
+            else if (event.getType() == ProductChangedEvent.Type.DELETED)
+                snapshot = snapshot.without(event.getProductId());
+            else if (event.getType() == ProductChangedEvent.Type.STOCK_CHANGED)
+                snapshot = snapshot.withStock(event.getStock());
+            else
+                snapshot = snapshot.with(event.getProduct());
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    private CatalogSnapshot current()
+    {
+        CatalogSnapshot current = snapshot;
+        if (current != null)
+            return current;
+
+        // the lock is shared with the event listener so a write that commits
+        // while the table is being read is applied after the load, not lost
+        writeLock.lock();
+        try
+        {
+            if (snapshot == null)
+                snapshot = load();
+            return snapshot;
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    private CatalogSnapshot load()
+    {
+        long start = System.nanoTime();
+        CatalogSnapshot loaded = CatalogSnapshot.of(productDao.getAllProducts());
+        LOG.info("Loaded catalog snapshot of {} products in {} ms", loaded.size(), (System.nanoTime() - start) / 1_000_000);
+        return loaded;
+    }
+}
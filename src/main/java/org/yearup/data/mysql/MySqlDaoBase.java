@@ -1,20 +1,414 @@
 package org.yearup.data.mysql;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.yearup.data.cache.SingleFlight;
+import org.yearup.metrics.MetricsRegistry;
+import org.yearup.metrics.QueryMonitor;
+
 import javax.sql.DataSource;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 
 public abstract class MySqlDaoBase
 {
+    private static final Object[] NO_PARAMS = new Object[0];
+
+    /**
+     * Fetch size hints for the query helpers. The default leaves the driver's
+     * own fetch size; Connector/J then reads the whole result before the first
+     * row is handed over. STREAM_RESULTS makes it hand rows over one at a time
+     * instead. A positive fetch size is passed to the driver as it is; Connector/J
+     * only honours it with useCursorFetch=true.
+     */
+    protected static final int DEFAULT_FETCH_SIZE = 0;
+    protected static final int STREAM_RESULTS = Integer.MIN_VALUE;
+
     public DataSource dataSource;
+    // e.g. "MySqlProductDao", the prefix of every method name reported to the QueryMonitor
+    private final String daoName;
+    private QueryMonitor queryMonitor;
+    private final List<SingleFlight<?, ?>> singleFlights = new ArrayList<>();
 
     public MySqlDaoBase(DataSource dataSource)
     {
         this.dataSource = dataSource;
+        this.daoName = daoName(getClass());
+    }
+
+    @Autowired(required = false)
+    public void setQueryMonitor(QueryMonitor queryMonitor)
+    {
+        this.queryMonitor = queryMonitor;
+    }
+
+    @Autowired(required = false)
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry)
+    {
+        singleFlights.forEach(metricsRegistry::register);
+    }
+
+    /**
+     * Creates a SingleFlight for one of the DAO's reads; its counters are
+     * reported with the other metrics. Call it from a field initializer.
+     */
+    protected <K, V> SingleFlight<K, V> singleFlight(String name)
+    {
+        SingleFlight<K, V> singleFlight = new SingleFlight<>(name);
+        singleFlights.add(singleFlight);
+        return singleFlight;
+    }
+
+    // after a write, readers must not join a load that started before it
+    protected void forgetInFlightReads()
+    {
+        singleFlights.forEach(SingleFlight::forgetAll);
     }
 
     protected Connection getConnection() throws SQLException
     {
         return dataSource.getConnection();
     }
+
+    /**
+     * Maps the current row of a ResultSet to an object.
+     */
+    @FunctionalInterface
+    protected interface RowMapper<T>
+    {
+        T mapRow(ResultSet row) throws SQLException;
+    }
+
+    // The helpers below own the Connection, PreparedStatement and ResultSet they
+    // open and close all three with try-with-resources. Parameters are bound in
+    // order with setObject, and SQLExceptions are rethrown unchecked. Every call
+    // is timed and reported to the QueryMonitor under the DAO method named by the
+    // caller, e.g. "search" for MySqlProductDao.search.
+
+    protected <T> List<T> queryForList(String method, String sql, RowMapper<T> mapper, Object... params)
+    {
+        return queryForList(method, sql, DEFAULT_FETCH_SIZE, mapper, params);
+    }
+
+    protected <T> List<T> queryForList(String method, String sql, int fetchSize, RowMapper<T> mapper, Object... params)
+    {
+        List<T> results = new ArrayList<>();
+        queryForEach(method, sql, fetchSize, mapper, results::add, params);
+        return results;
+    }
+
+    /**
+     * @return the first row, or null when the query returns no rows
+     */
+    protected <T> T queryForObject(String method, String sql, RowMapper<T> mapper, Object... params)
+    {
+        long start = System.nanoTime();
+        long rows = 0;
+        boolean failed = true;
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql))
+        {
+            bind(statement, params);
+
+            try (ResultSet row = statement.executeQuery())
+            {
+                T result = null;
+                if (row.next())
+                {
+                    result = mapper.mapRow(row);
+                    rows = 1;
+                }
+                failed = false;
+                return result;
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException(e);
+        }
+        finally
+        {
+            record(method, sql, params, start, rows, failed);
+        }
+    }
+
+    protected <T> void queryForEach(String method, String sql, RowMapper<T> mapper, Consumer<T> consumer, Object... params)
+    {
+        queryForEach(method, sql, DEFAULT_FETCH_SIZE, mapper, consumer, params);
+    }
+
+    /**
+     * @param fetchSize DEFAULT_FETCH_SIZE, STREAM_RESULTS or a number of rows per round trip
+     */
+    protected <T> void queryForEach(String method, String sql, int fetchSize, RowMapper<T> mapper, Consumer<T> consumer, Object... params)
+    {
+        forEachRow(method, sql, fetchSize, row -> consumer.accept(mapper.mapRow(row)), params);
+    }
+
+    /**
+     * Like queryForEach with STREAM_RESULTS: Connector/J hands rows over one at
+     * a time instead of buffering the whole result in memory.
+     */
+    protected <T> void stream(String method, String sql, RowMapper<T> mapper, Consumer<T> consumer, Object... params)
+    {
+        queryForEach(method, sql, STREAM_RESULTS, mapper, consumer, params);
+    }
+
+    /**
+     * Handles the current row of a ResultSet without mapping it to an object.
+     */
+    @FunctionalInterface
+    protected interface RowHandler
+    {
+        void handle(ResultSet row) throws SQLException;
+    }
+
+    /**
+     * Like stream, but hands the handler the ResultSet itself, positioned on
+     * each row in turn, for callers that copy the columns somewhere directly.
+     */
+    protected void streamRows(String method, String sql, RowHandler handler, Object... params)
+    {
+        forEachRow(method, sql, STREAM_RESULTS, handler, params);
+    }
+
+    private void forEachRow(String method, String sql, int fetchSize, RowHandler handler, Object... params)
+    {
+        long start = System.nanoTime();
+        long rows = 0;
+        boolean failed = true;
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY))
+        {
+            if (fetchSize != DEFAULT_FETCH_SIZE)
+                setFetchSize(statement, fetchSize);
+            bind(statement, params);
+
+            try (ResultSet row = statement.executeQuery())
+            {
+                while (row.next())
+                {
+                    handler.handle(row);
+                    rows++;
+                }
+            }
+            failed = false;
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException(e);
+        }
+        finally
+        {
+            record(method, sql, params, start, rows, failed);
+        }
+    }
+
+    private static void setFetchSize(PreparedStatement statement, int fetchSize)
+    {
+        try
+        {
+            statement.setFetchSize(fetchSize);
+        }
+        catch (SQLException e)
+        {
+            // only Connector/J understands STREAM_RESULTS; other drivers (H2 in the benchmarks) keep their default fetch size
+        }
+    }
+
+    /**
+     * @return the number of rows affected
+     */
+    protected int update(String method, String sql, Object... params)
+    {
+        long start = System.nanoTime();
+        int rows = 0;
+        boolean failed = true;
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql))
+        {
+            bind(statement, params);
+            rows = statement.executeUpdate();
+            failed = false;
+            return rows;
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException(e);
+        }
+        finally
+        {
+            record(method, sql, params, start, rows, failed);
+        }
+    }
+
+    /**
+     * @return the auto-generated key of the inserted row, or -1 when none was generated
+     */
+    protected int insert(String method, String sql, Object... params)
+    {
+        long start = System.nanoTime();
+        int rows = 0;
+        boolean failed = true;
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS))
+        {
+            bind(statement, params);
+            rows = statement.executeUpdate();
+
+            try (ResultSet generatedKeys = statement.getGeneratedKeys())
+            {
+                int key = generatedKeys.next() ? generatedKeys.getInt(1) : -1;
+                failed = false;
+                return key;
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException(e);
+        }
+        finally
+        {
+            record(method, sql, params, start, rows, failed);
+        }
+    }
+
+    /**
+     * Work that runs on a connection inside a transaction.
+     */
+    @FunctionalInterface
+    protected interface TransactionCallback<T>
+    {
+        T doInTransaction(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Runs the callback in a single transaction, committing when it returns and
+     * rolling back when it throws. A transaction that InnoDB picked as a deadlock
+     * victim (or that timed out waiting for a lock) is retried from the start, up
+     * to maxAttempts times, after a short randomized pause.
+     */
+    protected <T> T inTransaction(String method, TransactionCallback<T> callback, int maxAttempts)
+    {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try
+        {
+            T result = runTransaction(callback, maxAttempts);
+            failed = false;
+            return result;
+        }
+        finally
+        {
+            // the statements inside are not timed one by one; the transaction is, as a whole
+            record(method, "transaction", NO_PARAMS, start, 0, failed);
+        }
+    }
+
+    private <T> T runTransaction(TransactionCallback<T> callback, int maxAttempts)
+    {
+        for (int attempt = 1; ; attempt++)
+        {
+            try (Connection connection = getConnection())
+            {
+                connection.setAutoCommit(false);
+                Exception failure = null;
+                try
+                {
+                    T result = callback.doInTransaction(connection);
+                    connection.commit();
+                    return result;
+                }
+                catch (SQLException | RuntimeException e)
+                {
+                    failure = e;
+                    // on a broken connection the rollback fails too; the original error is the one to report
+                    try
+                    {
+                        connection.rollback();
+                    }
+                    catch (SQLException rollbackFailure)
+                    {
+                        e.addSuppressed(rollbackFailure);
+                    }
+                    throw e;
+                }
+                finally
+                {
+                    try
+                    {
+                        connection.setAutoCommit(true);
+                    }
+                    catch (SQLException autoCommitFailure)
+                    {
+                        // after a commit the work is done, and the pool turns auto-commit back on when the connection is returned
+                        if (failure != null)
+                            failure.addSuppressed(autoCommitFailure);
+                    }
+                }
+            }
+            catch (SQLException e)
+            {
+                if (attempt >= maxAttempts || !isRetryable(e))
+                    throw new RuntimeException(e);
+
+                backOff(attempt);
+            }
+        }
+    }
+
+    // 40001 / 1213 is a deadlock, 1205 a lock wait timeout; both roll the transaction back
+    private static boolean isRetryable(SQLException e)
+    {
+        return "40001".equals(e.getSQLState()) || e.getErrorCode() == 1213 || e.getErrorCode() == 1205;
+    }
+
+    private static void backOff(int attempt)
+    {
+        try
+        {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(5, 20L * attempt + 1));
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void record(String method, String sql, Object[] params, long start, long rows, boolean failed)
+    {
+        if (queryMonitor != null)
+            queryMonitor.record(daoName + "." + method, sql, params, System.nanoTime() - start, rows, failed);
+    }
+
+    // the DAO's own class, not an anonymous subclass of it (as in tests) or a generated proxy
+    private static String daoName(Class<?> type)
+    {
+        while (type.isAnonymousClass())
+        {
+            type = type.getSuperclass();
+        }
+        String name = type.getSimpleName();
+        int generated = name.indexOf("$$");
+        return generated < 0 ? name : name.substring(0, generated);
+    }
+
+    protected static void bind(PreparedStatement statement, Object... params) throws SQLException
+    {
+        for (int i = 0; i < params.length; i++)
+        {
+            if (params[i] == null)
+                statement.setNull(i + 1, Types.NULL);
+            else
+                statement.setObject(i + 1, params[i]);
+        }
+    }
 }
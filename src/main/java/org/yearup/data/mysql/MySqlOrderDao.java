@@ -0,0 +1,372 @@
+package org.yearup.data.mysql;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.yearup.data.InsufficientStockException;
+import org.yearup.data.OrderDao;
+import org.yearup.data.ProductChangedEvent;
+import org.yearup.models.Order;
+import org.yearup.models.OrderHistoryPage;
+import org.yearup.models.OrderLineItem;
+import org.yearup.models.OrderSummary;
+import org.yearup.models.Product;
+import org.yearup.models.Profile;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checkout runs as one transaction:
+ *
+ *  1. lock the user's cart rows,
+ *  2. lock the products in the cart in product_id order,
+ *  3. take the quantities out of stock with conditional updates (one batch),
+ *  4. insert the order and its line items (one batch); the order total is
+ *     the sum of the line items' totals, so the two always agree,
+ *  5. empty the cart.
+ *
+ * Every checkout locks products in ascending id order, so two checkouts that
+ * share products wait for each other instead of deadlocking. Deadlocks that
+ * still happen (e.g. against other writers) are retried by inTransaction.
+ */
+@Component
+public class MySqlOrderDao extends MySqlDaoBase implements OrderDao
+{
+    private final int maxAttempts;
+    private ApplicationEventPublisher eventPublisher;
+
+    public MySqlOrderDao(DataSource dataSource, @Value("${orders.checkout.max-attempts:3}") int maxAttempts)
+    {
+        super(dataSource);
+        this.maxAttempts = maxAttempts;
+    }
+
+    @Autowired(required = false)
+    public void setEventPublisher(ApplicationEventPublisher eventPublisher)
+    {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public Order checkout(int userId, Profile shipTo)
+    {
+        Map<Integer, Integer> changedStock = new LinkedHashMap<>();
+
+        Order order = inTransaction("checkout", connection -> {
+            changedStock.clear();
+
+            Map<Integer, Integer> cart = lockCart(connection, userId);
+            if (cart.isEmpty())
+                return null;
+
+            List<Product> products = lockProducts(connection, cart);
+            for (Product product : products)
+            {
+                int quantity = cart.get(product.getProductId());
+                if (product.getStock() < quantity)
+                    throw new InsufficientStockException(product.getProductId(), quantity, product.getStock());
+            }
+
+            decrementStock(connection, products, cart);
+
+            Order created = insertOrder(connection, userId, shipTo, lineItems(products, cart));
+            insertLineItems(connection, created);
+            clearCart(connection, userId);
+
+            for (Product product : products)
+            {
+                changedStock.put(product.getProductId(), product.getStock() - cart.get(product.getProductId()));
+            }
+            return created;
+        }, maxAttempts);
+
+        // only after the commit, and only once however many attempts it took; one event for the whole order
+        if (!changedStock.isEmpty())
+            publish(changedStock);
+        return order;
+    }
+
+    @Override
+    public OrderHistoryPage getHistory(int userId, OrderSummary after, int limit)
+    {
+        Object[] params;
+        if (after == null)
+        {
+            params = new Object[] { userId, limit + 1 };
+        }
+        else
+        {
+            Timestamp date = Timestamp.valueOf(after.getDate());
+            params = new Object[] { userId, date, date, after.getOrderId(), limit + 1 };
+        }
+
+        List<OrderSummary> orders = queryForList("getHistory", historySql(after != null), MySqlOrderDao::mapSummary, params);
+
+        OrderSummary last = null;
+        if (orders.size() > limit)
+        {
+            orders.remove(limit);
+            last = orders.get(limit - 1);
+        }
+        return new OrderHistoryPage(orders, last);
+    }
+
+    // every column comes from ix_orders_user_date, read backwards from the position; one extra row tells us whether there is a next page.
+    // MySQL does not turn a row comparison like (date, order_id) < (?, ?) into a range, so the position is spelled out
+    static String historySql(boolean afterPosition)
+    {
+        return "SELECT order_id, date, item_count, shipping_amount, order_total " +
+                " FROM orders " +
+                " WHERE user_id = ? " +
+                (afterPosition ? "   AND (date < ? OR (date = ? AND order_id < ?)) " : "") +
+                " ORDER BY date DESC, order_id DESC " +
+                " LIMIT ?";
+    }
+
+    @Override
+    public Order getById(int userId, int orderId)
+    {
+        String sql = "SELECT * FROM orders " +
+                " WHERE order_id = ? " +
+                "   AND user_id = ?";
+
+        Order order = queryForObject("getById", sql, MySqlOrderDao::mapOrder, orderId, userId);
+        if (order == null)
+            return null;
+
+        // one read of ix_line_items_order for all line items
+        String itemsSql = "SELECT order_line_item_id, order_id, product_id, sales_price, quantity, discount " +
+                " FROM order_line_items " +
+                " WHERE order_id = ? " +
+                " ORDER BY product_id";
+
+        queryForEach("getById", itemsSql, MySqlOrderDao::mapLineItem, order.getLineItems()::add, orderId);
+        return order;
+    }
+
+    // product id -> quantity, in product id order
+    private static Map<Integer, Integer> lockCart(Connection connection, int userId) throws SQLException
+    {
+        String sql = "SELECT product_id, quantity " +
+                " FROM shopping_cart " +
+                " WHERE user_id = ? " +
+                " ORDER BY product_id " +
+                " FOR UPDATE";
+
+        Map<Integer, Integer> cart = new LinkedHashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql))
+        {
+            bind(statement, userId);
+            try (ResultSet row = statement.executeQuery())
+            {
+                while (row.next())
+                {
+                    cart.put(row.getInt("product_id"), row.getInt("quantity"));
+                }
+            }
+        }
+        return cart;
+    }
+
+    private static List<Product> lockProducts(Connection connection, Map<Integer, Integer> cart) throws SQLException
+    {
+        String sql = "SELECT * FROM products " +
+                " WHERE product_id IN (" + String.join(", ", Collections.nCopies(cart.size(), "?")) + ") " +
+                " ORDER BY product_id " +
+                " FOR UPDATE";
+
+        List<Product> products = new ArrayList<>(cart.size());
+        try (PreparedStatement statement = connection.prepareStatement(sql))
+        {
+            bind(statement, cart.keySet().toArray());
+            try (ResultSet row = statement.executeQuery())
+            {
+                while (row.next())
+                {
+                    products.add(MySqlProductDao.mapRow(row));
+                }
+            }
+        }
+        return products;
+    }
+
+    private static void decrementStock(Connection connection, List<Product> products, Map<Integer, Integer> cart) throws SQLException
+    {
+        // the stock >= ? guard keeps stock from going negative even if a row was changed behind our back
+        String sql = "UPDATE products " +
+                " SET stock = stock - ? " +
+                " WHERE product_id = ? " +
+                "   AND stock >= ?";
+
+        try (PreparedStatement statement = connection.prepareStatement(sql))
+        {
+            for (Product product : products)
+            {
+                int quantity = cart.get(product.getProductId());
+                bind(statement, quantity, product.getProductId(), quantity);
+                statement.addBatch();
+            }
+
+            int[] updated = statement.executeBatch();
+            for (int i = 0; i < updated.length; i++)
+            {
+                if (updated[i] == 0)
+                {
+                    Product product = products.get(i);
+                    throw new InsufficientStockException(product.getProductId(), cart.get(product.getProductId()), product.getStock());
+                }
+            }
+        }
+    }
+
+    // one line item per product, at its current price
+    private static List<OrderLineItem> lineItems(List<Product> products, Map<Integer, Integer> cart)
+    {
+        List<OrderLineItem> lineItems = new ArrayList<>(products.size());
+        for (Product product : products)
+        {
+            OrderLineItem item = new OrderLineItem();
+            item.setProductId(product.getProductId());
+            item.setSalesPrice(product.getPrice());
+            item.setQuantity(cart.get(product.getProductId()));
+            lineItems.add(item);
+        }
+        return lineItems;
+    }
+
+    // the total and item count are stored with the order so the history never has to add up line items
+    private static Order insertOrder(Connection connection, int userId, Profile shipTo, List<OrderLineItem> lineItems) throws SQLException
+    {
+        String sql = "INSERT INTO orders (user_id, date, address, city, state, zip, shipping_amount, order_total, item_count) " +
+                " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        Order order = new Order();
+        order.setUserId(userId);
+        order.setDate(LocalDateTime.now().withNano(0));
+        order.setAddress(shipTo.getAddress());
+        order.setCity(shipTo.getCity());
+        order.setState(shipTo.getState());
+        order.setZip(shipTo.getZip());
+
+        BigDecimal total = order.getShippingAmount();
+        int itemCount = 0;
+        for (OrderLineItem item : lineItems)
+        {
+            total = total.add(item.getLineTotal());
+            itemCount += item.getQuantity();
+        }
+        order.getLineItems().addAll(lineItems);
+        order.setOrderTotal(total);
+        order.setItemCount(itemCount);
+
+        try (PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS))
+        {
+            bind(statement,
+                    order.getUserId(),
+                    Timestamp.valueOf(order.getDate()),
+                    order.getAddress(),
+                    order.getCity(),
+                    order.getState(),
+                    order.getZip(),
+                    order.getShippingAmount(),
+                    order.getOrderTotal(),
+                    order.getItemCount());
+            statement.executeUpdate();
+
+            try (ResultSet generatedKeys = statement.getGeneratedKeys())
+            {
+                generatedKeys.next();
+                order.setOrderId(generatedKeys.getInt(1));
+            }
+        }
+        return order;
+    }
+
+    private static void insertLineItems(Connection connection, Order order) throws SQLException
+    {
+        String sql = "INSERT INTO order_line_items (order_id, product_id, sales_price, quantity, discount) " +
+                " VALUES (?, ?, ?, ?, ?)";
+
+        try (PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS))
+        {
+            for (OrderLineItem item : order.getLineItems())
+            {
+                item.setOrderId(order.getOrderId());
+                bind(statement, item.getOrderId(), item.getProductId(), item.getSalesPrice(), item.getQuantity(), item.getDiscount());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+
+            try (ResultSet generatedKeys = statement.getGeneratedKeys())
+            {
+                for (OrderLineItem item : order.getLineItems())
+                {
+                    if (!generatedKeys.next())
+                        break;
+                    item.setOrderLineItemId(generatedKeys.getInt(1));
+                }
+            }
+        }
+    }
+
+    private static void clearCart(Connection connection, int userId) throws SQLException
+    {
+        try (PreparedStatement statement = connection.prepareStatement("DELETE FROM shopping_cart WHERE user_id = ?"))
+        {
+            bind(statement, userId);
+            statement.executeUpdate();
+        }
+    }
+
+    private static OrderSummary mapSummary(ResultSet row) throws SQLException
+    {
+        return new OrderSummary(row.getInt("order_id"),
+                                row.getTimestamp("date").toLocalDateTime(),
+                                row.getInt("item_count"),
+                                row.getBigDecimal("shipping_amount"),
+                                row.getBigDecimal("order_total"));
+    }
+
+    private static Order mapOrder(ResultSet row) throws SQLException
+    {
+        Order order = new Order();
+        order.setOrderId(row.getInt("order_id"));
+        order.setUserId(row.getInt("user_id"));
+        order.setDate(row.getTimestamp("date").toLocalDateTime());
+        order.setAddress(row.getString("address"));
+        order.setCity(row.getString("city"));
+        order.setState(row.getString("state"));
+        order.setZip(row.getString("zip"));
+        order.setShippingAmount(row.getBigDecimal("shipping_amount"));
+        order.setOrderTotal(row.getBigDecimal("order_total"));
+        order.setItemCount(row.getInt("item_count"));
+        return order;
+    }
+
+    private static OrderLineItem mapLineItem(ResultSet row) throws SQLException
+    {
+        OrderLineItem item = new OrderLineItem();
+        item.setOrderLineItemId(row.getInt("order_line_item_id"));
+        item.setOrderId(row.getInt("order_id"));
+        item.setProductId(row.getInt("product_id"));
+        item.setSalesPrice(row.getBigDecimal("sales_price"));
+        item.setQuantity(row.getInt("quantity"));
+        item.setDiscount(row.getBigDecimal("discount"));
+        return item;
+    }
+
+    private void publish(Map<Integer, Integer> stock)
+    {
+        if (eventPublisher != null)
+            eventPublisher.publishEvent(new ProductChangedEvent(stock));
+    }
+}
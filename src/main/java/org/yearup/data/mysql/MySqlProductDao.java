@@ -1,169 +1,271 @@
 package org.yearup.data.mysql;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
+import org.yearup.data.ProductChangedEvent;
+import org.yearup.data.cache.SingleFlight;
 import org.yearup.models.Product;
 import org.yearup.data.ProductDao;
+import org.yearup.data.ProductJsonWriter;
+import org.yearup.models.ProductField;
+import org.yearup.models.ProductPage;
 
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Component
 public class MySqlProductDao extends MySqlDaoBase implements ProductDao
 {
+    private static final Logger LOG = LoggerFactory.getLogger(MySqlProductDao.class);
+
+    // -1 / '' in a parameter pair switches that filter off
+    private static final String SEARCH_FILTER =
+            "(category_id = ? OR ? = -1) " +
+            "   AND (price <= ? OR ? = -1) " +
+            "   AND (price >= ? OR ? = -1) " +
+            "   AND (color = ? OR ? = '') ";
+
+    private ApplicationEventPublisher eventPublisher;
+
+    // identical reads running at the same time share one query; each caller gets its own copies of the Products
+    private final SingleFlight<List<Object>, List<Product>> searches = singleFlight("MySqlProductDao.search");
+    private final SingleFlight<Integer, List<Product>> byCategory = singleFlight("MySqlProductDao.listByCategoryId");
+    private final SingleFlight<Integer, Product> byId = singleFlight("MySqlProductDao.getById");
+    private final SingleFlight<Boolean, List<Product>> all = singleFlight("MySqlProductDao.getAllProducts");
+
     public MySqlProductDao(DataSource dataSource)
     {
         super(dataSource);
     }
 
+    @Autowired(required = false)
+    public void setEventPublisher(ApplicationEventPublisher eventPublisher)
+    {
+        this.eventPublisher = eventPublisher;
+    }
+
     @Override
     public List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color)
     {
-        List<Product> products = new ArrayList<>();
-
         String sql = "SELECT * FROM products " +
-                "WHERE (category_id = ? OR ? = -1) " +
-                "   AND (price <= ? OR ? = -1) " +
-                " AND (price >= ? OR ? = -1) " + //bug
-                "   AND (color = ? OR ? = '') ";
+                "WHERE " + SEARCH_FILTER;
 
-        categoryId = categoryId == null ? -1 : categoryId;
-        minPrice = minPrice == null ? new BigDecimal("-1") : minPrice;
-        maxPrice = maxPrice == null ? new BigDecimal("-1") : maxPrice;
-        color = color == null ? "" : color;
+        Object[] params = searchParams(categoryId, minPrice, maxPrice, color);
+        List<Product> products = copies(searches.execute(Arrays.asList(params), () -> queryForList("search", sql, MySqlProductDao::mapRow, params)));
 
-        try (Connection connection = getConnection())
+        // the loop is skipped entirely unless debug logging is on for this class
+        if (LOG.isDebugEnabled())
         {
-            PreparedStatement statement = connection.prepareStatement(sql);
-            statement.setInt(1, categoryId);
-            statement.setInt(2, categoryId);
-            statement.setBigDecimal(3, maxPrice);
-            statement.setBigDecimal(4, maxPrice);
-            statement.setBigDecimal(5, minPrice);
-            statement.setBigDecimal(6, minPrice);
-            statement.setString(7, color);
-            statement.setString(8, color);
-
-            ResultSet row = statement.executeQuery();
-
-            while (row.next())
+            for (Product product : products)
             {
-                Product product = mapRow(row);
-                products.add(product);
+                LOG.debug("search matched {}", product);
             }
         }
-        catch (SQLException e)
-        {
-            throw new RuntimeException(e);
-        }
-        // Print each product new line
-        for (Product product : products) {
-            System.out.println(product);
-            System.out.println(); // Adds an empty line between the products
-        }
-
 
         return products;
     }
 
     @Override
-    public List<Product> listByCategoryId(int categoryId)
+    public ProductPage searchPage(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color,
+                                  int afterProductId, int limit, Set<ProductField> fields)
     {
-        List<Product> products = new ArrayList<>();
+        // only the requested columns are read, and one extra row tells us whether there is a next page
+        String columns = fields.stream()
+                .map(MySqlProductDao::columnName)
+                .collect(Collectors.joining(", "));
+
+        String sql = "SELECT " + columns + " FROM products " +
+                "WHERE product_id > ? " +
+                "   AND " + SEARCH_FILTER +
+                "ORDER BY product_id " +
+                "LIMIT ?";
+
+        Object[] filter = searchParams(categoryId, minPrice, maxPrice, color);
+        Object[] params = new Object[filter.length + 2];
+        params[0] = afterProductId;
+        System.arraycopy(filter, 0, params, 1, filter.length);
+        params[params.length - 1] = limit + 1;
+
+        List<Product> products = queryForList("searchPage", sql, row -> mapRow(row, fields), params);
+
+        Integer lastProductId = null;
+        if (products.size() > limit)
+        {
+            products.remove(limit);
+            lastProductId = products.get(limit - 1).getProductId();
+        }
+        return new ProductPage(products, fields, lastProductId);
+    }
 
+    @Override
+    public List<Product> listByCategoryId(int categoryId)
+    {
         String sql = "SELECT * FROM products " +
                     " WHERE category_id = ? ";
 
-        try (Connection connection = getConnection())
-        {
-            PreparedStatement statement = connection.prepareStatement(sql);
-            statement.setInt(1, categoryId);
-
-            ResultSet row = statement.executeQuery();
+        return copies(byCategory.execute(categoryId, () -> queryForList("listByCategoryId", sql, MySqlProductDao::mapRow, categoryId)));
+    }
 
-            while (row.next())
-            {
-                Product product = mapRow(row);
-                products.add(product);
-            }
-        }
-        catch (SQLException e)
-        {
-            throw new RuntimeException(e);
-        }
+    @Override
+    public List<Product> listFeatured(int limit)
+    {
+        String sql = "SELECT * FROM products " +
+                    " WHERE featured = 1 " +
+                    " ORDER BY product_id " +
+                    " LIMIT ?";
 
-        return products;
+        return queryForList("listFeatured", sql, MySqlProductDao::mapRow, limit);
     }
 
+    @Override
+    public List<Product> listTopByCategoryId(int categoryId, int limit)
+    {
+        String sql = "SELECT * FROM products " +
+                    " WHERE category_id = ? " +
+                    " ORDER BY featured DESC, product_id " +
+                    " LIMIT ?";
+
+        return queryForList("listTopByCategoryId", sql, MySqlProductDao::mapRow, categoryId, limit);
+    }
 
     @Override
     public Product getById(int productId)
     {
         String sql = "SELECT * FROM products WHERE product_id = ?";
-        try (Connection connection = getConnection())
-        {
-            PreparedStatement statement = connection.prepareStatement(sql);
-            statement.setInt(1, productId);
 
-            ResultSet row = statement.executeQuery();
+        Product product = byId.execute(productId, () -> queryForObject("getById", sql, MySqlProductDao::mapRow, productId));
+        return product == null ? null : copy(product);
+    }
+
+    @Override
+    public Map<Integer, Product> getByIds(Collection<Integer> productIds)
+    {
+        Map<Integer, Product> products = new HashMap<>();
+        if (productIds.isEmpty())
+            return products;
+
+        String sql = "SELECT * FROM products " +
+                " WHERE product_id IN (" + String.join(", ", Collections.nCopies(productIds.size(), "?")) + ")";
+
+        queryForEach("getByIds", sql, MySqlProductDao::mapRow, product -> products.put(product.getProductId(), product), productIds.toArray());
+        return products;
+    }
+
+    @Override
+    public Product create(Product product)
+    {
 
-            if (row.next())
+        String sql = "INSERT INTO products(name, price, category_id, description, color, image_url, stock, featured) " +
+                " VALUES (?, ?, ?, ?, ?, ?, ?, ?);";
+
+        int productId = insert("create", sql, insertParams(product));
+
+        if (productId < 0)
+            return null;
+
+        // every column was supplied, so the new row is the product plus its generated id
+        product.setProductId(productId);
+        publish(ProductChangedEvent.Type.CREATED, productId, product);
+        return product;
+    }
+
+    @Override
+    public int createAll(Iterator<Product> products, int batchSize, BiConsumer<Integer, RuntimeException> onError)
+    {
+        List<Product> batch = new ArrayList<>(batchSize);
+        int inserted = 0;
+        int position = 0;
+        try
+        {
+            while (products.hasNext())
             {
-                return mapRow(row);
+                batch.add(products.next());
+                if (batch.size() == batchSize || !products.hasNext())
+                {
+                    inserted += insertBatch(batch, position, onError);
+                    position += batch.size();
+                    batch.clear();
+                }
             }
         }
-        catch (SQLException e)
+        finally
         {
-            throw new RuntimeException(e);
+            if (inserted > 0)
+                publish(ProductChangedEvent.Type.RELOADED, 0, null);
         }
-        return null;
+        return inserted;
     }
 
-    @Override
-    public Product create(Product product)
+    // one executeBatch per transaction; with rewriteBatchedStatements the driver sends it as a multi-row INSERT
+    private int insertBatch(List<Product> batch, int firstPosition, BiConsumer<Integer, RuntimeException> onError)
     {
-
         String sql = "INSERT INTO products(name, price, category_id, description, color, image_url, stock, featured) " +
                 " VALUES (?, ?, ?, ?, ?, ?, ?, ?);";
 
-        try (Connection connection = getConnection())
+        try
         {
-            PreparedStatement statement = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS);
-            statement.setString(1, product.getName());
-            statement.setBigDecimal(2, product.getPrice());
-            statement.setInt(3, product.getCategoryId());
-            statement.setString(4, product.getDescription());
-            statement.setString(5, product.getColor());
-            statement.setString(6, product.getImageUrl());
-            statement.setInt(7, product.getStock());
-            statement.setBoolean(8, product.isFeatured());
-
-            int rowsAffected = statement.executeUpdate();
-
-            if (rowsAffected > 0) {
-                // Retrieve the generated keys
-                ResultSet generatedKeys = statement.getGeneratedKeys();
-
-                if (generatedKeys.next()) {
-                    // Retrieve the auto-incremented ID
-                    int orderId = generatedKeys.getInt(1);
-
-                    // get the newly inserted category
-                    return getById(orderId);
+            return inTransaction("insertBatch", connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS))
+                {
+                    for (Product product : batch)
+                    {
+                        bind(statement, insertParams(product));
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+
+                    try (ResultSet generatedKeys = statement.getGeneratedKeys())
+                    {
+                        for (Product product : batch)
+                        {
+                            if (!generatedKeys.next())
+                                break;
+                            product.setProductId(generatedKeys.getInt(1));
+                        }
+                    }
                 }
-            }
+                return batch.size();
+            }, 3);
         }
-        catch (SQLException e)
+        catch (RuntimeException e)
         {
-            throw new RuntimeException(e);
+            if (batch.size() == 1)
+            {
+                onError.accept(firstPosition, e);
+                return 0;
+            }
+
+            // the whole batch was rolled back; insert its rows one at a time to find the bad ones
+            int inserted = 0;
+            for (int i = 0; i < batch.size(); i++)
+            {
+                inserted += insertBatch(List.of(batch.get(i)), firstPosition + i, onError);
+            }
+            return inserted;
         }
-        return null;
     }
 
     @Override
-    public void update(int productId, Product product)
+    public boolean update(int productId, Product product)
     {
         String sql = "UPDATE products" +
                 " SET name = ? " +
@@ -176,63 +278,174 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao
                 "   , featured = ? " +
                 " WHERE product_id = ?;";
 
-        try (Connection connection = getConnection())
-        {
-            PreparedStatement statement = connection.prepareStatement(sql);
-            statement.setString(1, product.getName());
-            statement.setBigDecimal(2, product.getPrice());
-            statement.setInt(3, product.getCategoryId());
-            statement.setString(4, product.getDescription());
-            statement.setString(5, product.getColor());
-            statement.setString(6, product.getImageUrl());
-            statement.setInt(7, product.getStock());
-            statement.setBoolean(8, product.isFeatured());
-            statement.setInt(9, productId);
-
-            statement.executeUpdate();
-        }
-        catch (SQLException e)
-        {
-            throw new RuntimeException(e);
-        }
+        int rows = update("update", sql,
+                product.getName(),
+                product.getPrice(),
+                product.getCategoryId(),
+                product.getDescription(),
+                product.getColor(),
+                product.getImageUrl(),
+                product.getStock(),
+                product.isFeatured(),
+                productId);
+
+        // nothing to publish for an id MySQL does not have
+        if (rows == 0)
+            return false;
+
+        product.setProductId(productId);
+        publish(ProductChangedEvent.Type.UPDATED, productId, product);
+        return true;
     }
 
     @Override
-    public void delete(int productId)
+    public boolean delete(int productId)
     {
 
         String sql = "DELETE FROM products " +
                 " WHERE product_id = ?;";
 
-        try (Connection connection = getConnection())
+        if (update("delete", sql, productId) == 0)
+            return false;
+
+        publish(ProductChangedEvent.Type.DELETED, productId, null);
+        return true;
+    }
+
+    @Override
+    public List<Product> getAllProducts() {
+
+        String sql = "SELECT * FROM products";
+
+        // the snapshot, the views and the facets may all load at startup; streamed, so the driver does not
+        // buffer the whole table next to the list
+        return copies(all.execute(Boolean.TRUE, () -> queryForList("getAllProducts", sql, STREAM_RESULTS, MySqlProductDao::mapRow)));
+    }
+
+    @Override
+    public void streamSearch(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color, Consumer<Product> consumer)
+    {
+        String sql = "SELECT * FROM products " +
+                "WHERE " + SEARCH_FILTER;
+
+        stream("streamSearch", sql, MySqlProductDao::mapRow, consumer, searchParams(categoryId, minPrice, maxPrice, color));
+    }
+
+    @Override
+    public void writeSearchJson(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color, JsonGenerator generator)
+    {
+        // without filters, the plain scan getAllProducts does
+        if (categoryId == null && minPrice == null && maxPrice == null && color == null)
         {
-            PreparedStatement statement = connection.prepareStatement(sql);
-            statement.setInt(1, productId);
+            streamRows("writeSearchJson", "SELECT * FROM products", row -> writeJson(generator, row));
+            return;
+        }
+
+        String sql = "SELECT * FROM products " +
+                "WHERE " + SEARCH_FILTER;
+
+        streamRows("writeSearchJson", sql, row -> writeJson(generator, row), searchParams(categoryId, minPrice, maxPrice, color));
+    }
+
+    @Override
+    public void writeByCategoryIdJson(int categoryId, JsonGenerator generator)
+    {
+        String sql = "SELECT * FROM products " +
+                " WHERE category_id = ? ";
+
+        streamRows("writeByCategoryIdJson", sql, row -> writeJson(generator, row), categoryId);
+    }
 
-            statement.executeUpdate();
+    private static void writeJson(JsonGenerator generator, ResultSet row) throws SQLException
+    {
+        try
+        {
+            ProductJsonWriter.write(generator, row);
         }
-        catch (SQLException e)
+        catch (IOException e)
         {
-            throw new RuntimeException(e);
+            throw new UncheckedIOException(e);
         }
     }
 
-    @Override
-    public List<Product> getAllProducts() {
+    private static Object[] searchParams(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color)
+    {
+        categoryId = categoryId == null ? -1 : categoryId;
+        minPrice = minPrice == null ? new BigDecimal("-1") : minPrice;
+        maxPrice = maxPrice == null ? new BigDecimal("-1") : maxPrice;
+        color = color == null ? "" : color;
 
-        List<Product> products = new ArrayList<>();
-        String sql = "SELECT * FROM products";
-        try (Connection connection = getConnection()) {
-            Statement statement = connection.createStatement();
-            ResultSet row = statement.executeQuery(sql);
-            while (row.next()) {
-                Product product = mapRow(row);
-                products.add(product);
+        return new Object[] { categoryId, categoryId, maxPrice, maxPrice, minPrice, minPrice, color, color };
+    }
+
+    private static Object[] insertParams(Product product)
+    {
+        return new Object[] {
+                product.getName(),
+                product.getPrice(),
+                product.getCategoryId(),
+                product.getDescription(),
+                product.getColor(),
+                product.getImageUrl(),
+                product.getStock(),
+                product.isFeatured() };
+    }
+
+    private void publish(ProductChangedEvent.Type type, int productId, Product product)
+    {
+        forgetInFlightReads();
+        if (eventPublisher != null)
+            eventPublisher.publishEvent(new ProductChangedEvent(type, productId, product));
+    }
+
+    private static String columnName(ProductField field)
+    {
+        switch (field)
+        {
+            case PRODUCT_ID: return "product_id";
+            case CATEGORY_ID: return "category_id";
+            case IMAGE_URL: return "image_url";
+            default: return field.name().toLowerCase();
+        }
+    }
+
+    // a SingleFlight result is shared by every caller that joined the load, and callers may change what they get
+    private static List<Product> copies(List<Product> products)
+    {
+        List<Product> copies = new ArrayList<>(products.size());
+        for (Product product : products)
+        {
+            copies.add(copy(product));
+        }
+        return copies;
+    }
+
+    private static Product copy(Product product)
+    {
+        return new Product(product.getProductId(), product.getName(), product.getPrice(), product.getCategoryId(),
+                           product.getDescription(), product.getColor(), product.getStock(), product.isFeatured(), product.getImageUrl());
+    }
+
+    // maps only the columns that were selected, leaving the rest of the product at its defaults
+    protected static Product mapRow(ResultSet row, Set<ProductField> fields) throws SQLException
+    {
+        Product product = new Product();
+        for (ProductField field : fields)
+        {
+            switch (field)
+            {
+                case PRODUCT_ID: product.setProductId(row.getInt("product_id")); break;
+                case NAME: product.setName(row.getString("name")); break;
+                case PRICE: product.setPrice(row.getBigDecimal("price")); break;
+                case CATEGORY_ID: product.setCategoryId(row.getInt("category_id")); break;
+                case DESCRIPTION: product.setDescription(row.getString("description")); break;
+                case COLOR: product.setColor(row.getString("color")); break;
+                case STOCK: product.setStock(row.getInt("stock")); break;
+                case IMAGE_URL: product.setImageUrl(row.getString("image_url")); break;
+                case FEATURED: product.setFeatured(row.getBoolean("featured")); break;
             }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
         }
-        return products;
+        return product;
     }
 
     protected static Product mapRow(ResultSet row) throws SQLException
@@ -21,27 +21,39 @@ public class MySqlProfileDao extends MySqlDaoBase implements ProfileDao
         String sql = "INSERT INTO profiles (user_id, first_name, last_name, phone, email, address, city, state, zip) " +
                 " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
-        try(Connection connection = getConnection())
-        {
-            PreparedStatement ps = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS);
-            ps.setInt(1, profile.getUserId());
-            ps.setString(2, profile.getFirstName());
-            ps.setString(3, profile.getLastName());
-            ps.setString(4, profile.getPhone());
-            ps.setString(5, profile.getEmail());
-            ps.setString(6, profile.getAddress());
-            ps.setString(7, profile.getCity());
-            ps.setString(8, profile.getState());
-            ps.setString(9, profile.getZip());
-
-            ps.executeUpdate();
-
-            return profile;
-        }
-        catch (SQLException e)
-        {
-            throw new RuntimeException(e);
-        }
+        insert("create", sql,
+                profile.getUserId(),
+                profile.getFirstName(),
+                profile.getLastName(),
+                profile.getPhone(),
+                profile.getEmail(),
+                profile.getAddress(),
+                profile.getCity(),
+                profile.getState(),
+                profile.getZip());
+
+        return profile;
     }
 
+    @Override
+    public Profile getByUserId(int userId)
+    {
+        String sql = "SELECT * FROM profiles WHERE user_id = ?";
+
+        return queryForObject("getByUserId", sql, this::mapRow, userId);
+    }
+
+    private Profile mapRow(ResultSet row) throws SQLException
+    {
+        return new Profile(
+                row.getInt("user_id"),
+                row.getString("first_name"),
+                row.getString("last_name"),
+                row.getString("phone"),
+                row.getString("email"),
+                row.getString("address"),
+                row.getString("city"),
+                row.getString("state"),
+                row.getString("zip"));
+    }
 }
@@ -0,0 +1,234 @@
+package org.yearup.data.mysql;
+
+import org.springframework.stereotype.Component;
+import org.yearup.data.ShoppingCartDao;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartItem;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+@Component
+public class MySqlShoppingCartDao extends MySqlDaoBase implements ShoppingCartDao
+{
+    // rows per multi-row statement in writeBack
+    private static final int WRITE_BACK_CHUNK = 500;
+
+    public MySqlShoppingCartDao(DataSource dataSource)
+    {
+        super(dataSource);
+    }
+
+    @Override
+    public ShoppingCart getByUserId(int userId)
+    {
+        // one query for the whole cart, products included
+        String sql = "SELECT sc.quantity, p.* " +
+                " FROM shopping_cart sc " +
+                " JOIN products p ON p.product_id = sc.product_id " +
+                " WHERE sc.user_id = ? " +
+                " ORDER BY sc.product_id";
+
+        ShoppingCart cart = new ShoppingCart();
+        queryForEach("getByUserId", sql, MySqlShoppingCartDao::mapRow, cart::add, userId);
+        return cart;
+    }
+
+    @Override
+    public void addProducts(int userId, Map<Integer, Integer> quantities)
+    {
+        if (quantities.isEmpty())
+            return;
+
+        // a single multi-row upsert, in product id order so concurrent adds lock rows in the same order
+        Map<Integer, Integer> sorted = new TreeMap<>(quantities);
+
+        StringBuilder sql = new StringBuilder("INSERT INTO shopping_cart (user_id, product_id, quantity) VALUES ");
+        Object[] params = new Object[sorted.size() * 3];
+        int i = 0;
+        for (Map.Entry<Integer, Integer> line : sorted.entrySet())
+        {
+            sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+            params[i++] = userId;
+            params[i++] = line.getKey();
+            params[i++] = line.getValue();
+        }
+        sql.append(" ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)");
+
+        update("addProducts", sql.toString(), params);
+    }
+
+    @Override
+    public void updateQuantities(int userId, Map<Integer, Integer> quantities)
+    {
+        if (quantities.isEmpty())
+            return;
+
+        Map<Integer, Integer> sorted = new TreeMap<>(quantities);
+
+        // UPDATE ... SET quantity = CASE product_id WHEN ? THEN ? ... END WHERE product_id IN (...)
+        StringBuilder cases = new StringBuilder();
+        StringBuilder ids = new StringBuilder();
+        Object[] params = new Object[sorted.size() * 3 + 1];
+        int i = 0;
+        for (Map.Entry<Integer, Integer> line : sorted.entrySet())
+        {
+            cases.append(" WHEN ? THEN ?");
+            params[i++] = line.getKey();
+            params[i++] = line.getValue();
+        }
+        params[i++] = userId;
+        for (Integer productId : sorted.keySet())
+        {
+            ids.append(ids.length() == 0 ? "?" : ", ?");
+            params[i++] = productId;
+        }
+
+        String sql = "UPDATE shopping_cart " +
+                " SET quantity = CASE product_id" + cases + " END " +
+                " WHERE user_id = ? " +
+                "   AND product_id IN (" + ids + ")";
+
+        update("updateQuantities", sql, params);
+    }
+
+    @Override
+    public void clear(int userId)
+    {
+        String sql = "DELETE FROM shopping_cart " +
+                " WHERE user_id = ?";
+
+        update("clear", sql, userId);
+    }
+
+    @Override
+    public <T> T withStoredCart(int userId, Supplier<T> work)
+    {
+        // every write above goes straight to the table
+        return work.get();
+    }
+
+    /**
+     * Writes the changes of many carts in one transaction. The carts in
+     * clearedUserIds are emptied first; then every quantity in
+     * quantitiesByUser (user id -> product id -> quantity) is set, with a
+     * quantity of zero or less deleting the row.
+     */
+    public void writeBack(Collection<Integer> clearedUserIds, Map<Integer, Map<Integer, Integer>> quantitiesByUser)
+    {
+        // user and product id order, so concurrent writers lock rows in the same order
+        List<int[]> upserts = new ArrayList<>();
+        List<int[]> deletes = new ArrayList<>();
+        new TreeMap<>(quantitiesByUser).forEach((userId, quantities) ->
+            new TreeMap<>(quantities).forEach((productId, quantity) ->
+                (quantity > 0 ? upserts : deletes).add(new int[] { userId, productId, quantity })));
+
+        inTransaction("writeBack", connection -> {
+            if (!clearedUserIds.isEmpty())
+                clearAll(connection, clearedUserIds);
+
+            for (int from = 0; from < upserts.size(); from += WRITE_BACK_CHUNK)
+            {
+                upsert(connection, upserts.subList(from, Math.min(upserts.size(), from + WRITE_BACK_CHUNK)));
+            }
+            for (int from = 0; from < deletes.size(); from += WRITE_BACK_CHUNK)
+            {
+                delete(connection, deletes.subList(from, Math.min(deletes.size(), from + WRITE_BACK_CHUNK)));
+            }
+            return null;
+        }, 3);
+    }
+
+    /**
+     * True when writeBack failed because a line refers to a product or a user
+     * that is no longer in the database. Retrying the same lines cannot help.
+     */
+    public static boolean isMissingReference(RuntimeException e)
+    {
+        // 1452: cannot add or update a child row, a foreign key constraint fails
+        return e.getCause() instanceof SQLException cause && cause.getErrorCode() == 1452;
+    }
+
+    private static void clearAll(Connection connection, Collection<Integer> userIds) throws SQLException
+    {
+        String sql = "DELETE FROM shopping_cart " +
+                " WHERE user_id IN (" + placeholders(userIds.size(), "?") + ")";
+
+        try (PreparedStatement statement = connection.prepareStatement(sql))
+        {
+            bind(statement, new TreeSet<>(userIds).toArray());
+            statement.executeUpdate();
+        }
+    }
+
+    // quantities are absolute here: the in-memory cart already has the final value
+    private static void upsert(Connection connection, List<int[]> rows) throws SQLException
+    {
+        String sql = "INSERT INTO shopping_cart (user_id, product_id, quantity) " +
+                " VALUES " + placeholders(rows.size(), "(?, ?, ?)") +
+                " ON DUPLICATE KEY UPDATE quantity = VALUES(quantity)";
+
+        Object[] params = new Object[rows.size() * 3];
+        int i = 0;
+        for (int[] row : rows)
+        {
+            params[i++] = row[0];
+            params[i++] = row[1];
+            params[i++] = row[2];
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(sql))
+        {
+            bind(statement, params);
+            statement.executeUpdate();
+        }
+    }
+
+    private static void delete(Connection connection, List<int[]> rows) throws SQLException
+    {
+        String sql = "DELETE FROM shopping_cart " +
+                " WHERE (user_id, product_id) IN (" + placeholders(rows.size(), "(?, ?)") + ")";
+
+        Object[] params = new Object[rows.size() * 2];
+        int i = 0;
+        for (int[] row : rows)
+        {
+            params[i++] = row[0];
+            params[i++] = row[1];
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(sql))
+        {
+            bind(statement, params);
+            statement.executeUpdate();
+        }
+    }
+
+    private static String placeholders(int count, String placeholder)
+    {
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < count; i++)
+        {
+            sql.append(i == 0 ? placeholder : ", " + placeholder);
+        }
+        return sql.toString();
+    }
+
+    private static ShoppingCartItem mapRow(ResultSet row) throws SQLException
+    {
+        ShoppingCartItem item = new ShoppingCartItem();
+        item.setProduct(MySqlProductDao.mapRow(row));
+        item.setQuantity(row.getInt("quantity"));
+        return item;
+    }
+}
@@ -4,20 +4,22 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.yearup.data.UserDao;
 import org.yearup.models.User;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
 import javax.sql.DataSource;
 import java.sql.*;
-import java.util.ArrayList;
 import java.util.List;
 
 @Component
 public class MySqlUserDao extends MySqlDaoBase implements UserDao
 {
+    private final PasswordEncoder passwordEncoder;
+
     @Autowired
-    public MySqlUserDao(DataSource dataSource)
+    public MySqlUserDao(DataSource dataSource, PasswordEncoder passwordEncoder)
     {
         super(dataSource);
+        this.passwordEncoder = passwordEncoder;
     }
 
 
@@ -25,77 +27,29 @@ public class MySqlUserDao extends MySqlDaoBase implements UserDao
     public User create(User newUser)
     {
         String sql = "INSERT INTO users (username, hashed_password, role) VALUES (?, ?, ?)";
-        String hashedPassword = new BCryptPasswordEncoder().encode(newUser.getPassword());
-
-        try (Connection connection = getConnection())
-        {
-            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            ps.setString(1, newUser.getUsername());
-            ps.setString(2, hashedPassword);
-            ps.setString(3, newUser.getRole());
-
-            ps.executeUpdate();
+        String hashedPassword = passwordEncoder.encode(newUser.getPassword());
 
-            User user = getByUserName(newUser.getUsername());
-            user.setPassword("");
+        String role = newUser.getRole();
+        int userId = insert("create", sql, newUser.getUsername(), hashedPassword, role);
 
-            return user;
-
-        }
-        catch (SQLException e)
-        {
-            throw new RuntimeException(e);
-        }
+        // everything the row holds is already known, so there is no need to read it back
+        return new User(userId, newUser.getUsername(), "", role);
     }
 
     @Override
     public List<User> getAll()
     {
-        List<User> users = new ArrayList<>();
-
         String sql = "SELECT * FROM users";
-        try (Connection connection = getConnection())
-        {
-            PreparedStatement statement = connection.prepareStatement(sql);
-
-            ResultSet row = statement.executeQuery();
 
-            while (row.next())
-            {
-                User user = mapRow(row);
-                users.add(user);
-            }
-        }
-        catch (SQLException e)
-        {
-            throw new RuntimeException(e);
-        }
-
-        return users;
+        return queryForList("getAll", sql, this::mapRow);
     }
 
     @Override
     public User getUserById(int id)
     {
         String sql = "SELECT * FROM users WHERE user_id = ?";
-        try (Connection connection = getConnection())
-        {
-            PreparedStatement statement = connection.prepareStatement(sql);
-            statement.setInt(1, id);
 
-            ResultSet row = statement.executeQuery();
-
-            if(row.next())
-            {
-                User user = mapRow(row);
-                return user;
-            }
-        }
-        catch (SQLException e)
-        {
-            throw new RuntimeException(e);
-        }
-        return null;
+        return queryForObject("getUserById", sql, this::mapRow, id);
     }
 
     @Override
@@ -105,25 +59,7 @@ public class MySqlUserDao extends MySqlDaoBase implements UserDao
                 " FROM users " +
                 " WHERE username = ?";
 
-        try (Connection connection = getConnection())
-        {
-            PreparedStatement statement = connection.prepareStatement(sql);
-            statement.setString(1, username);
-
-            ResultSet row = statement.executeQuery();
-            if(row.next())
-            {
-
-                User user = mapRow(row);
-                return user;
-            }
-        }
-        catch (SQLException e)
-        {
-            System.out.println(e);
-        }
-
-        return null;
+        return queryForObject("getByUserName", sql, this::mapRow, username);
     }
 
     @Override
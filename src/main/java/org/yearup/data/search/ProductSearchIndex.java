@@ -0,0 +1,273 @@
+package org.yearup.data.search;
+
+import org.yearup.models.Product;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BinaryOperator;
+
+/**
+ * An in-memory inverted index over product names and descriptions, ranked with BM25.
+ *
+ * Text is lower-cased and split on anything that is not a letter or digit. Terms
+ * are kept in a sorted map so the last word of a query can be matched as a prefix
+ * for autocomplete. Words in the name count {@value #NAME_WEIGHT} times as much as
+ * words in the description. Products can be added, replaced and removed one at a
+ * time; searches take a read lock and run concurrently.
+ *
+ * Only the terms of each product are kept. A search returns product ids, and
+ * the caller reads the products from the catalog.
+ */
+public class ProductSearchIndex
+{
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int NAME_WEIGHT = 2;
+
+    // a one-letter prefix can match thousands of terms; only the most common ones are scored
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Document> documents = new HashMap<>();
+    private final NavigableMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+    private long totalLength;
+
+    public void addAll(Collection<Product> products)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            for (Product product : products)
+            {
+                put(product);
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the product, replacing whatever was indexed under its id before.
+     */
+    public void add(Product product)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            put(product);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int productId)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            delete(productId);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return documents.size();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of up to limit products ranked by relevance, best first (ties
+     * in product id order). A product matches when it contains any of the query's words.
+     *
+     * @param prefix whether the last word of the query also matches longer words that start with it
+     */
+    public List<Integer> search(String query, boolean prefix, int limit)
+    {
+        List<String> words = tokenize(query);
+        if (words.isEmpty() || limit <= 0)
+            return Collections.emptyList();
+
+        lock.readLock().lock();
+        try
+        {
+            if (documents.isEmpty())
+                return Collections.emptyList();
+
+            double averageLength = (double) totalLength / documents.size();
+            Map<Integer, Double> scores = new HashMap<>();
+
+            for (int i = 0; i < words.size(); i++)
+            {
+                String word = words.get(i);
+                if (prefix && i == words.size() - 1)
+                    scorePrefix(word, averageLength, scores);
+                else if (postings.containsKey(word))
+                    scoreTerm(postings.get(word), averageLength, scores, Double::sum);
+            }
+
+            return top(scores, limit);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text)
+    {
+        List<String> tokens = new ArrayList<>();
+        if (text == null)
+            return tokens;
+
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++)
+        {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0)
+            {
+                start = i;
+            }
+            else if (!wordChar && start >= 0)
+            {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private void put(Product product)
+    {
+        delete(product.getProductId());
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokenize(product.getName()))
+        {
+            frequencies.merge(token, NAME_WEIGHT, Integer::sum);
+        }
+        for (String token : tokenize(product.getDescription()))
+        {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+
+        int length = 0;
+        for (Map.Entry<String, Integer> term : frequencies.entrySet())
+        {
+            postings.computeIfAbsent(term.getKey(), k -> new HashMap<>()).put(product.getProductId(), term.getValue());
+            length += term.getValue();
+        }
+
+        documents.put(product.getProductId(), new Document(frequencies.keySet().toArray(new String[0]), length));
+        totalLength += length;
+    }
+
+    private void delete(int productId)
+    {
+        Document document = documents.remove(productId);
+        if (document == null)
+            return;
+
+        for (String term : document.terms)
+        {
+            Map<Integer, Integer> docs = postings.get(term);
+            docs.remove(productId);
+            if (docs.isEmpty())
+                postings.remove(term);
+        }
+        totalLength -= document.length;
+    }
+
+    private void scorePrefix(String prefix, double averageLength, Map<Integer, Double> scores)
+    {
+        Collection<Map<Integer, Integer>> matches = postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values();
+
+        List<Map<Integer, Integer>> expansions = new ArrayList<>(matches);
+        if (expansions.size() > MAX_PREFIX_EXPANSIONS)
+        {
+            expansions.sort(Comparator.comparingInt((Map<Integer, Integer> docs) -> docs.size()).reversed());
+            expansions = expansions.subList(0, MAX_PREFIX_EXPANSIONS);
+        }
+
+        // a product that matches the prefix through several words is scored by its best one
+        Map<Integer, Double> best = new HashMap<>();
+        for (Map<Integer, Integer> docs : expansions)
+        {
+            scoreTerm(docs, averageLength, best, Math::max);
+        }
+        best.forEach((productId, score) -> scores.merge(productId, score, Double::sum));
+    }
+
+    private void scoreTerm(Map<Integer, Integer> docs, double averageLength, Map<Integer, Double> scores,
+                           BinaryOperator<Double> combine)
+    {
+        int documentCount = documents.size();
+        double idf = Math.log(1 + (documentCount - docs.size() + 0.5) / (docs.size() + 0.5));
+
+        for (Map.Entry<Integer, Integer> posting : docs.entrySet())
+        {
+            int frequency = posting.getValue();
+            int length = documents.get(posting.getKey()).length;
+            double score = idf * (frequency * (K1 + 1)) / (frequency + K1 * (1 - B + B * length / averageLength));
+            scores.merge(posting.getKey(), score, combine);
+        }
+    }
+
+    private static List<Integer> top(Map<Integer, Double> scores, int limit)
+    {
+        // worst of the kept results at the head, so it is the one pushed out
+        Comparator<Map.Entry<Integer, Double>> ranking = Map.Entry.<Integer, Double>comparingByValue()
+                .thenComparing(Map.Entry.<Integer, Double>comparingByKey().reversed());
+
+        PriorityQueue<Map.Entry<Integer, Double>> heap = new PriorityQueue<>(limit + 1, ranking);
+        for (Map.Entry<Integer, Double> entry : scores.entrySet())
+        {
+            heap.add(entry);
+            if (heap.size() > limit)
+                heap.poll();
+        }
+
+        Integer[] results = new Integer[heap.size()];
+        for (int i = results.length - 1; i >= 0; i--)
+        {
+            results[i] = heap.poll().getKey();
+        }
+        return List.of(results);
+    }
+
+    private static final class Document
+    {
+        private final String[] terms;
+        private final int length;
+
+        private Document(String[] terms, int length)
+        {
+            this.terms = terms;
+            this.length = length;
+        }
+    }
+}
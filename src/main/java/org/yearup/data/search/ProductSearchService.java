@@ -0,0 +1,104 @@
+package org.yearup.data.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProductChangedEvent;
+import org.yearup.data.ProductDao;
+import org.yearup.models.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps a {@link ProductSearchIndex} in step with the products table.
+ *
+ * The index is built from the catalog on first use and then updated from the
+ * {@link ProductChangedEvent}s published for every product write, so searches
+ * never go to MySQL for the ranking. The index holds only terms; the products
+ * of a result are read from the catalog in one lookup.
+ */
+@Component
+public class ProductSearchService
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ProductSearchService.class);
+
+    private final ProductDao productDao;
+    private final ReentrantLock buildLock = new ReentrantLock();
+    private volatile ProductSearchIndex index;
+
+    public ProductSearchService(ProductDao productDao)
+    {
+        this.productDao = productDao;
+    }
+
+    public List<Product> search(String query, boolean prefix, int limit)
+    {
+        List<Integer> productIds = current().search(query, prefix, limit);
+        Map<Integer, Product> products = productDao.getByIds(productIds);
+
+        // in ranking order; a product deleted since it was ranked is left out
+        List<Product> results = new ArrayList<>(productIds.size());
+        for (Integer productId : productIds)
+        {
+            Product product = products.get(productId);
+            if (product != null)
+                results.add(product);
+        }
+        return results;
+    }
+
+    @EventListener
+    @Order(0)
+    public void onProductChanged(ProductChangedEvent event)
+    {
+        // holding the build lock means a write during the initial build is applied after it, not lost
+        buildLock.lock();
+        try
+        {
+            if (index == null)
+                return;
+
+            // rebuilt on the next search, from the catalog as it is then
+            if (event.getType() == ProductChangedEvent.Type.RELOADED)
+                index = null;
+            else if (event.getType() == ProductChangedEvent.Type.DELETED)
+                index.remove(event.getProductId());
+            else if (event.getType() != ProductChangedEvent.Type.STOCK_CHANGED)
+                index.add(event.getProduct());
+        }
+        finally
+        {
+            buildLock.unlock();
+        }
+    }
+
+    private ProductSearchIndex current()
+    {
+        ProductSearchIndex current = index;
+        if (current != null)
+            return current;
+
+        buildLock.lock();
+        try
+        {
+            if (index == null)
+            {
+                long start = System.nanoTime();
+                ProductSearchIndex built = new ProductSearchIndex();
+                built.addAll(productDao.getAllProducts());
+                LOG.info("Indexed {} products for search in {} ms", built.size(), (System.nanoTime() - start) / 1_000_000);
+                index = built;
+            }
+            return index;
+        }
+        finally
+        {
+            buildLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.yearup.metrics;
+
+import org.springframework.stereotype.Component;
+import org.yearup.data.cache.SingleFlight;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.ToLongFunction;
+
+/**
+ * Timers for every controller method and every DAO method, the counters of
+ * the DAOs' single-flight reads, and their rendering in the Prometheus text
+ * exposition format.
+ */
+@Component
+public class MetricsRegistry
+{
+    private static final double[] QUANTILES = { 0.5, 0.99, 0.999 };
+
+    private final Map<String, Timer> requests = new ConcurrentHashMap<>();
+    private final Map<String, Timer> queries = new ConcurrentHashMap<>();
+    private final List<SingleFlight<?, ?>> singleFlights = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param handler e.g. "ProductsController.search"
+     */
+    public Timer requestTimer(String handler)
+    {
+        return requests.computeIfAbsent(handler, k -> new Timer());
+    }
+
+    /**
+     * @param method e.g. "MySqlProductDao.getById"
+     */
+    public Timer daoTimer(String method)
+    {
+        return queries.computeIfAbsent(method, k -> new Timer());
+    }
+
+    public void register(SingleFlight<?, ?> singleFlight)
+    {
+        singleFlights.add(singleFlight);
+    }
+
+    public void writePrometheus(StringBuilder out)
+    {
+        summary(out, "http_server_requests_seconds", "Time spent handling requests, by controller method.", "handler", requests);
+        counter(out, "http_server_response_bytes_total", "Bytes written to response bodies.", "handler", requests, Timer::getBytes);
+        counter(out, "http_server_errors_total", "Requests that failed or returned a 5xx status.", "handler", requests, Timer::getErrors);
+
+        summary(out, "dao_query_seconds", "Time spent in DAO database calls, by DAO method.", "method", queries);
+        counter(out, "dao_rows_total", "Rows read or written by DAO database calls.", "method", queries, Timer::getRows);
+        counter(out, "dao_errors_total", "DAO database calls that threw.", "method", queries, Timer::getErrors);
+
+        writeSingleFlights(out);
+    }
+
+    // the coalescing ratio is coalesced / calls: the share of reads that did not reach the database
+    private void writeSingleFlights(StringBuilder out)
+    {
+        List<SingleFlight<?, ?>> sorted = new ArrayList<>(singleFlights);
+        sorted.sort(Comparator.comparing(SingleFlight::getName));
+
+        out.append("# HELP dao_single_flight_calls_total Calls to DAO reads that coalesce identical concurrent queries.\n");
+        out.append("# TYPE dao_single_flight_calls_total counter\n");
+        for (SingleFlight<?, ?> singleFlight : sorted)
+        {
+            out.append("dao_single_flight_calls_total{method=\"").append(escape(singleFlight.getName())).append("\"} ")
+               .append(singleFlight.getCalls()).append('\n');
+        }
+
+        out.append("# HELP dao_single_flight_coalesced_total Calls answered by a query another caller already had in flight.\n");
+        out.append("# TYPE dao_single_flight_coalesced_total counter\n");
+        for (SingleFlight<?, ?> singleFlight : sorted)
+        {
+            out.append("dao_single_flight_coalesced_total{method=\"").append(escape(singleFlight.getName())).append("\"} ")
+               .append(singleFlight.getCoalesced()).append('\n');
+        }
+
+        out.append("# HELP dao_single_flight_coalescing_ratio Share of calls answered by another caller's query.\n");
+        out.append("# TYPE dao_single_flight_coalescing_ratio gauge\n");
+        for (SingleFlight<?, ?> singleFlight : sorted)
+        {
+            long calls = singleFlight.getCalls();
+            out.append("dao_single_flight_coalescing_ratio{method=\"").append(escape(singleFlight.getName())).append("\"} ")
+               .append(calls == 0 ? 0.0 : (double) singleFlight.getCoalesced() / calls).append('\n');
+        }
+    }
+
+    private static void summary(StringBuilder out, String name, String help, String label, Map<String, Timer> timers)
+    {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" summary\n");
+
+        new TreeMap<>(timers).forEach((key, timer) -> {
+            LatencyHistogram latency = timer.getLatency();
+            for (double quantile : QUANTILES)
+            {
+                out.append(name).append('{').append(label).append("=\"").append(escape(key))
+                   .append("\",quantile=\"").append(quantile).append("\"} ")
+                   .append(seconds(latency.getValueAtPercentile(quantile * 100))).append('\n');
+            }
+            out.append(name).append("_sum{").append(label).append("=\"").append(escape(key)).append("\"} ")
+               .append(seconds(latency.getTotal())).append('\n');
+            out.append(name).append("_count{").append(label).append("=\"").append(escape(key)).append("\"} ")
+               .append(latency.getCount()).append('\n');
+        });
+    }
+
+    private static void counter(StringBuilder out, String name, String help, String label, Map<String, Timer> timers,
+                                ToLongFunction<Timer> value)
+    {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+
+        new TreeMap<>(timers).forEach((key, timer) ->
+            out.append(name).append('{').append(label).append("=\"").append(escape(key)).append("\"} ")
+               .append(value.applyAsLong(timer)).append('\n'));
+    }
+
+    private static double seconds(long nanos)
+    {
+        return nanos / 1_000_000_000.0;
+    }
+
+    private static String escape(String value)
+    {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
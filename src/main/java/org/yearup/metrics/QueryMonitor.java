@@ -0,0 +1,70 @@
+package org.yearup.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receives the timing of every DAO database call. Calls are added to the DAO
+ * method's timer, and calls slower than the threshold are written to the
+ * "org.yearup.slow-query" log with their SQL and the types of their
+ * parameters. Parameter values are never logged: they include password hashes
+ * and customers' personal details.
+ */
+@Component
+public class QueryMonitor
+{
+    private static final Logger SLOW_QUERIES = LoggerFactory.getLogger("org.yearup.slow-query");
+
+    private static final int MAX_LOGGED_PARAMS = 20;
+
+    private final MetricsRegistry metricsRegistry;
+    private final long thresholdNanos;
+
+    public QueryMonitor(MetricsRegistry metricsRegistry,
+                        @Value("${metrics.slow-query.threshold-millis:200}") long thresholdMillis)
+    {
+        this.metricsRegistry = metricsRegistry;
+        // zero or less turns the slow-query log off
+        this.thresholdNanos = thresholdMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(thresholdMillis) : Long.MAX_VALUE;
+    }
+
+    /**
+     * @param method the DAO method that made the call, e.g. "MySqlProductDao.search"
+     * @param rows   rows read, or rows affected by an update
+     */
+    public void record(String method, String sql, Object[] params, long nanos, long rows, boolean failed)
+    {
+        Timer timer = metricsRegistry.daoTimer(method);
+        timer.record(nanos);
+        timer.addRows(rows);
+        if (failed)
+            timer.recordError();
+
+        if (nanos >= thresholdNanos && SLOW_QUERIES.isWarnEnabled())
+        {
+            SLOW_QUERIES.warn("{} took {} ms, {} rows{}: {} {}",
+                              method, TimeUnit.NANOSECONDS.toMillis(nanos), rows, failed ? " (failed)" : "",
+                              sql.replaceAll("\\s+", " ").trim(), describe(params));
+        }
+    }
+
+    // e.g. "[Integer, String, null]"
+    private static String describe(Object[] params)
+    {
+        StringBuilder text = new StringBuilder("[");
+        int shown = Math.min(params.length, MAX_LOGGED_PARAMS);
+        for (int i = 0; i < shown; i++)
+        {
+            if (i > 0)
+                text.append(", ");
+            text.append(params[i] == null ? "null" : params[i].getClass().getSimpleName());
+        }
+        if (params.length > shown)
+            text.append(", ... ").append(params.length - shown).append(" more");
+        return text.append(']').toString();
+    }
+}
@@ -0,0 +1,57 @@
+package org.yearup.metrics;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times every request under the controller method that handled it. The clock
+ * starts at the first dispatch and stops when the last one completes, so an
+ * async or streamed response is measured until its final byte.
+ */
+public class RequestMetricsInterceptor implements HandlerInterceptor
+{
+    private static final String START_ATTRIBUTE = RequestMetricsInterceptor.class.getName() + ".start";
+
+    private final MetricsRegistry metricsRegistry;
+    private final Map<Method, String> handlerNames = new ConcurrentHashMap<>();
+
+    public RequestMetricsInterceptor(MetricsRegistry metricsRegistry)
+    {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+    {
+        // an async dispatch of the same request runs preHandle again; keep the original start
+        if (request.getAttribute(START_ATTRIBUTE) == null)
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex)
+    {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (!(start instanceof Long) || !(handler instanceof HandlerMethod))
+            return;
+
+        Timer timer = metricsRegistry.requestTimer(handlerName((HandlerMethod) handler));
+        timer.record(System.nanoTime() - (Long) start);
+        timer.addBytes(ResponseSizeFilter.bytesWritten(request));
+        if (ex != null || response.getStatus() >= 500)
+            timer.recordError();
+    }
+
+    private String handlerName(HandlerMethod handler)
+    {
+        return handlerNames.computeIfAbsent(handler.getMethod(),
+                method -> handler.getBeanType().getSimpleName() + "." + method.getName());
+    }
+}
@@ -0,0 +1,156 @@
+package org.yearup.metrics;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the bytes written to the response body. Nothing is buffered; writes
+ * go straight through to the container, so streamed responses stay streamed.
+ * The count is left in a request attribute for the RequestMetricsInterceptor.
+ */
+public class ResponseSizeFilter extends OncePerRequestFilter
+{
+    static final String BYTES_ATTRIBUTE = ResponseSizeFilter.class.getName() + ".bytes";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException
+    {
+        // a LongAdder because an async response may be written from another thread
+        LongAdder bytes = new LongAdder();
+        request.setAttribute(BYTES_ATTRIBUTE, bytes);
+        chain.doFilter(request, new CountingResponse(response, bytes));
+    }
+
+    static long bytesWritten(HttpServletRequest request)
+    {
+        Object bytes = request.getAttribute(BYTES_ATTRIBUTE);
+        return bytes instanceof LongAdder ? ((LongAdder) bytes).sum() : 0;
+    }
+
+    private static final class CountingResponse extends HttpServletResponseWrapper
+    {
+        private final LongAdder bytes;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        private CountingResponse(HttpServletResponse response, LongAdder bytes)
+        {
+            super(response);
+            this.bytes = bytes;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException
+        {
+            if (outputStream == null)
+                outputStream = new CountingOutputStream(super.getOutputStream(), bytes);
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException
+        {
+            if (writer == null)
+                writer = new CountingWriter(super.getWriter(), Charset.forName(getCharacterEncoding()), bytes);
+            return writer;
+        }
+    }
+
+    private static final class CountingOutputStream extends ServletOutputStream
+    {
+        private final ServletOutputStream delegate;
+        private final LongAdder bytes;
+
+        private CountingOutputStream(ServletOutputStream delegate, LongAdder bytes)
+        {
+            this.delegate = delegate;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            delegate.write(b);
+            bytes.increment();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            delegate.write(b, off, len);
+            bytes.add(len);
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady()
+        {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener)
+        {
+            delegate.setWriteListener(listener);
+        }
+    }
+
+    // the writer path is only taken by error pages and the like, so encoding
+    // each write a second time just to count it is cheap enough
+    private static final class CountingWriter extends PrintWriter
+    {
+        private final Charset charset;
+        private final LongAdder bytes;
+
+        private CountingWriter(PrintWriter delegate, Charset charset, LongAdder bytes)
+        {
+            super(delegate);
+            this.charset = charset;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void write(int c)
+        {
+            super.write(c);
+            bytes.add(String.valueOf((char) c).getBytes(charset).length);
+        }
+
+        @Override
+        public void write(char[] buf, int off, int len)
+        {
+            super.write(buf, off, len);
+            bytes.add(new String(buf, off, len).getBytes(charset).length);
+        }
+
+        @Override
+        public void write(String s, int off, int len)
+        {
+            super.write(s, off, len);
+            bytes.add(s.substring(off, off + len).getBytes(charset).length);
+        }
+    }
+}
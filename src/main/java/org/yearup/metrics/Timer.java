@@ -0,0 +1,55 @@
+package org.yearup.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency of one operation (a controller method or a DAO method) together with
+ * the counters that go with it. Thread-safe and lock-free.
+ */
+public class Timer
+{
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    public void record(long nanos)
+    {
+        latency.record(nanos);
+    }
+
+    public void recordError()
+    {
+        errors.increment();
+    }
+
+    public void addRows(long count)
+    {
+        rows.add(count);
+    }
+
+    public void addBytes(long count)
+    {
+        bytes.add(count);
+    }
+
+    public LatencyHistogram getLatency()
+    {
+        return latency;
+    }
+
+    public long getErrors()
+    {
+        return errors.sum();
+    }
+
+    public long getRows()
+    {
+        return rows.sum();
+    }
+
+    public long getBytes()
+    {
+        return bytes.sum();
+    }
+}
@@ -0,0 +1,37 @@
+package org.yearup.models;
+
+public class BulkImportError
+{
+    private long row;
+    private String message;
+
+    public BulkImportError()
+    {
+    }
+
+    public BulkImportError(long row, String message)
+    {
+        this.row = row;
+        this.message = message;
+    }
+
+    public long getRow()
+    {
+        return row;
+    }
+
+    public void setRow(long row)
+    {
+        this.row = row;
+    }
+
+    public String getMessage()
+    {
+        return message;
+    }
+
+    public void setMessage(String message)
+    {
+        this.message = message;
+    }
+}
@@ -0,0 +1,65 @@
+package org.yearup.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. Rows are numbered from 1, not counting a CSV header;
+ * only the first few hundred errors are listed, but every failure is counted.
+ */
+public class BulkImportResult
+{
+    private static final int MAX_ERRORS = 500;
+
+    private int imported;
+    private int failed;
+    private long elapsedMillis;
+    private List<BulkImportError> errors = new ArrayList<>();
+
+    public void addError(long row, String message)
+    {
+        failed++;
+        if (errors.size() < MAX_ERRORS)
+            errors.add(new BulkImportError(row, message));
+    }
+
+    public int getImported()
+    {
+        return imported;
+    }
+
+    public void setImported(int imported)
+    {
+        this.imported = imported;
+    }
+
+    public int getFailed()
+    {
+        return failed;
+    }
+
+    public void setFailed(int failed)
+    {
+        this.failed = failed;
+    }
+
+    public long getElapsedMillis()
+    {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis)
+    {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public List<BulkImportError> getErrors()
+    {
+        return errors;
+    }
+
+    public void setErrors(List<BulkImportError> errors)
+    {
+        this.errors = errors;
+    }
+}
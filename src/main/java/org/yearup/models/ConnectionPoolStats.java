@@ -0,0 +1,162 @@
+package org.yearup.models;
+
+/**
+ * A point-in-time view of the database connection pool.
+ */
+public class ConnectionPoolStats
+{
+    private int active;
+    private int idle;
+    private int maxTotal;
+    private long borrowCount;
+    private long borrowFailures;
+    private double waitMeanMillis;
+    private double waitP50Millis;
+    private double waitP99Millis;
+    private double waitMaxMillis;
+    private int suspectedLeaks;
+    private long leaksReported;
+    private int borrowPermitsAvailable;
+    private int borrowPermitWaiters;
+    private long borrowPermitTimeouts;
+
+    public int getActive()
+    {
+        return active;
+    }
+
+    public void setActive(int active)
+    {
+        this.active = active;
+    }
+
+    public int getIdle()
+    {
+        return idle;
+    }
+
+    public void setIdle(int idle)
+    {
+        this.idle = idle;
+    }
+
+    public int getMaxTotal()
+    {
+        return maxTotal;
+    }
+
+    public void setMaxTotal(int maxTotal)
+    {
+        this.maxTotal = maxTotal;
+    }
+
+    public long getBorrowCount()
+    {
+        return borrowCount;
+    }
+
+    public void setBorrowCount(long borrowCount)
+    {
+        this.borrowCount = borrowCount;
+    }
+
+    public long getBorrowFailures()
+    {
+        return borrowFailures;
+    }
+
+    public void setBorrowFailures(long borrowFailures)
+    {
+        this.borrowFailures = borrowFailures;
+    }
+
+    public double getWaitMeanMillis()
+    {
+        return waitMeanMillis;
+    }
+
+    public void setWaitMeanMillis(double waitMeanMillis)
+    {
+        this.waitMeanMillis = waitMeanMillis;
+    }
+
+    public double getWaitP50Millis()
+    {
+        return waitP50Millis;
+    }
+
+    public void setWaitP50Millis(double waitP50Millis)
+    {
+        this.waitP50Millis = waitP50Millis;
+    }
+
+    public double getWaitP99Millis()
+    {
+        return waitP99Millis;
+    }
+
+    public void setWaitP99Millis(double waitP99Millis)
+    {
+        this.waitP99Millis = waitP99Millis;
+    }
+
+    public double getWaitMaxMillis()
+    {
+        return waitMaxMillis;
+    }
+
+    public void setWaitMaxMillis(double waitMaxMillis)
+    {
+        this.waitMaxMillis = waitMaxMillis;
+    }
+
+    public int getSuspectedLeaks()
+    {
+        return suspectedLeaks;
+    }
+
+    public void setSuspectedLeaks(int suspectedLeaks)
+    {
+        this.suspectedLeaks = suspectedLeaks;
+    }
+
+    public long getLeaksReported()
+    {
+        return leaksReported;
+    }
+
+    public void setLeaksReported(long leaksReported)
+    {
+        this.leaksReported = leaksReported;
+    }
+
+    public int getBorrowPermitsAvailable()
+    {
+        return borrowPermitsAvailable;
+    }
+
+    public void setBorrowPermitsAvailable(int borrowPermitsAvailable)
+    {
+        this.borrowPermitsAvailable = borrowPermitsAvailable;
+    }
+
+    public int getBorrowPermitWaiters()
+    {
+        return borrowPermitWaiters;
+    }
+
+    public void setBorrowPermitWaiters(int borrowPermitWaiters)
+    {
+        this.borrowPermitWaiters = borrowPermitWaiters;
+    }
+
+    public long getBorrowPermitTimeouts()
+    {
+        return borrowPermitTimeouts;
+    }
+
+    public void setBorrowPermitTimeouts(long borrowPermitTimeouts)
+    {
+        this.borrowPermitTimeouts = borrowPermitTimeouts;
+    }
+}
@@ -0,0 +1,68 @@
+package org.yearup.models;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * One page of a user's orders, newest first. {@code nextCursor} is null on
+ * the last page; otherwise it points after the last order on this page.
+ */
+public class OrderHistoryPage
+{
+    private static final String CURSOR_PREFIX = "o:";
+
+    private final List<OrderSummary> orders;
+    private final String nextCursor;
+
+    public OrderHistoryPage(List<OrderSummary> orders, OrderSummary last)
+    {
+        this.orders = orders;
+        this.nextCursor = last == null ? null : encodeCursor(last.getDate(), last.getOrderId());
+    }
+
+    public List<OrderSummary> getOrders()
+    {
+        return orders;
+    }
+
+    public String getNextCursor()
+    {
+        return nextCursor;
+    }
+
+    public static String encodeCursor(LocalDateTime date, int orderId)
+    {
+        byte[] bytes = (CURSOR_PREFIX + date + "|" + orderId).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Returns the (date, order id) position a cursor points after, or null for a null cursor.
+     *
+     * @throws IllegalArgumentException when the cursor was not issued by {@link #encodeCursor(LocalDateTime, int)}
+     */
+    public static OrderSummary decodeCursor(String cursor)
+    {
+        if (cursor == null || cursor.isEmpty())
+            return null;
+
+        try
+        {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf('|');
+            if (!decoded.startsWith(CURSOR_PREFIX) || separator < 0)
+                throw new IllegalArgumentException("Invalid cursor");
+
+            OrderSummary position = new OrderSummary();
+            position.setDate(LocalDateTime.parse(decoded.substring(CURSOR_PREFIX.length(), separator)));
+            position.setOrderId(Integer.parseInt(decoded.substring(separator + 1)));
+            return position;
+        }
+        catch (RuntimeException e)
+        {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
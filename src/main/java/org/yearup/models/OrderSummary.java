@@ -0,0 +1,79 @@
+package org.yearup.models;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One row of a user's order history, read from the orders table alone.
+ */
+public class OrderSummary
+{
+    private int orderId;
+    private LocalDateTime date;
+    private int itemCount;
+    private BigDecimal shippingAmount;
+    private BigDecimal orderTotal;
+
+    public OrderSummary()
+    {
+    }
+
+    public OrderSummary(int orderId, LocalDateTime date, int itemCount, BigDecimal shippingAmount, BigDecimal orderTotal)
+    {
+        this.orderId = orderId;
+        this.date = date;
+        this.itemCount = itemCount;
+        this.shippingAmount = shippingAmount;
+        this.orderTotal = orderTotal;
+    }
+
+    public int getOrderId()
+    {
+        return orderId;
+    }
+
+    public void setOrderId(int orderId)
+    {
+        this.orderId = orderId;
+    }
+
+    public LocalDateTime getDate()
+    {
+        return date;
+    }
+
+    public void setDate(LocalDateTime date)
+    {
+        this.date = date;
+    }
+
+    public int getItemCount()
+    {
+        return itemCount;
+    }
+
+    public void setItemCount(int itemCount)
+    {
+        this.itemCount = itemCount;
+    }
+
+    public BigDecimal getShippingAmount()
+    {
+        return shippingAmount;
+    }
+
+    public void setShippingAmount(BigDecimal shippingAmount)
+    {
+        this.shippingAmount = shippingAmount;
+    }
+
+    public BigDecimal getOrderTotal()
+    {
+        return orderTotal;
+    }
+
+    public void setOrderTotal(BigDecimal orderTotal)
+    {
+        this.orderTotal = orderTotal;
+    }
+}
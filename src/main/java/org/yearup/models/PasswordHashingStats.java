@@ -0,0 +1,162 @@
+package org.yearup.models;
+
+/**
+ * Load on the password hashing pool and how long BCrypt takes to hash and verify.
+ */
+public class PasswordHashingStats
+{
+    private int poolSize;
+    private int active;
+    private int queueDepth;
+    private int queueCapacity;
+    private long completed;
+    private long rejected;
+    private long hashCount;
+    private double hashP50Millis;
+    private double hashP99Millis;
+    private double hashMaxMillis;
+    private long verifyCount;
+    private double verifyP50Millis;
+    private double verifyP99Millis;
+    private double verifyMaxMillis;
+
+    public int getPoolSize()
+    {
+        return poolSize;
+    }
+
+    public void setPoolSize(int poolSize)
+    {
+        this.poolSize = poolSize;
+    }
+
+    public int getActive()
+    {
+        return active;
+    }
+
+    public void setActive(int active)
+    {
+        this.active = active;
+    }
+
+    public int getQueueDepth()
+    {
+        return queueDepth;
+    }
+
+    public void setQueueDepth(int queueDepth)
+    {
+        this.queueDepth = queueDepth;
+    }
+
+    public int getQueueCapacity()
+    {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity)
+    {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public long getCompleted()
+    {
+        return completed;
+    }
+
+    public void setCompleted(long completed)
+    {
+        this.completed = completed;
+    }
+
+    public long getRejected()
+    {
+        return rejected;
+    }
+
+    public void setRejected(long rejected)
+    {
+        this.rejected = rejected;
+    }
+
+    public long getHashCount()
+    {
+        return hashCount;
+    }
+
+    public void setHashCount(long hashCount)
+    {
+        this.hashCount = hashCount;
+    }
+
+    public double getHashP50Millis()
+    {
+        return hashP50Millis;
+    }
+
+    public void setHashP50Millis(double hashP50Millis)
+    {
+        this.hashP50Millis = hashP50Millis;
+    }
+
+    public double getHashP99Millis()
+    {
+        return hashP99Millis;
+    }
+
+    public void setHashP99Millis(double hashP99Millis)
+    {
+        this.hashP99Millis = hashP99Millis;
+    }
+
+    public double getHashMaxMillis()
+    {
+        return hashMaxMillis;
+    }
+
+    public void setHashMaxMillis(double hashMaxMillis)
+    {
+        this.hashMaxMillis = hashMaxMillis;
+    }
+
+    public long getVerifyCount()
+    {
+        return verifyCount;
+    }
+
+    public void setVerifyCount(long verifyCount)
+    {
+        this.verifyCount = verifyCount;
+    }
+
+    public double getVerifyP50Millis()
+    {
+        return verifyP50Millis;
+    }
+
+    public void setVerifyP50Millis(double verifyP50Millis)
+    {
+        this.verifyP50Millis = verifyP50Millis;
+    }
+
+    public double getVerifyP99Millis()
+    {
+        return verifyP99Millis;
+    }
+
+    public void setVerifyP99Millis(double verifyP99Millis)
+    {
+        this.verifyP99Millis = verifyP99Millis;
+    }
+
+    public double getVerifyMaxMillis()
+    {
+        return verifyMaxMillis;
+    }
+
+    public void setVerifyMaxMillis(double verifyMaxMillis)
+    {
+        this.verifyMaxMillis = verifyMaxMillis;
+    }
+}
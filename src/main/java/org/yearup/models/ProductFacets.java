@@ -0,0 +1,160 @@
+package org.yearup.models;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts for the search sidebar, all for the same set of search filters:
+ * products per category (with each category's price range), products per
+ * color, and products per price bucket.
+ */
+public class ProductFacets
+{
+    private int total;
+    private List<CategoryFacet> categories = new ArrayList<>();
+    private List<ColorFacet> colors = new ArrayList<>();
+    private List<PriceBucket> prices = new ArrayList<>();
+
+    public int getTotal()
+    {
+        return total;
+    }
+
+    public void setTotal(int total)
+    {
+        this.total = total;
+    }
+
+    public List<CategoryFacet> getCategories()
+    {
+        return categories;
+    }
+
+    public void setCategories(List<CategoryFacet> categories)
+    {
+        this.categories = categories;
+    }
+
+    public List<ColorFacet> getColors()
+    {
+        return colors;
+    }
+
+    public void setColors(List<ColorFacet> colors)
+    {
+        this.colors = colors;
+    }
+
+    public List<PriceBucket> getPrices()
+    {
+        return prices;
+    }
+
+    public void setPrices(List<PriceBucket> prices)
+    {
+        this.prices = prices;
+    }
+
+    public static class CategoryFacet
+    {
+        private final int categoryId;
+        private int count;
+        private BigDecimal minPrice;
+        private BigDecimal maxPrice;
+
+        public CategoryFacet(int categoryId)
+        {
+            this.categoryId = categoryId;
+        }
+
+        public void add(BigDecimal price)
+        {
+            count++;
+            if (minPrice == null || price.compareTo(minPrice) < 0)
+                minPrice = price;
+            if (maxPrice == null || price.compareTo(maxPrice) > 0)
+                maxPrice = price;
+        }
+
+        public int getCategoryId()
+        {
+            return categoryId;
+        }
+
+        public int getCount()
+        {
+            return count;
+        }
+
+        public BigDecimal getMinPrice()
+        {
+            return minPrice;
+        }
+
+        public BigDecimal getMaxPrice()
+        {
+            return maxPrice;
+        }
+    }
+
+    public static class ColorFacet
+    {
+        private final String color;
+        private int count;
+
+        public ColorFacet(String color)
+        {
+            this.color = color;
+        }
+
+        public void add()
+        {
+            count++;
+        }
+
+        public String getColor()
+        {
+            return color;
+        }
+
+        public int getCount()
+        {
+            return count;
+        }
+    }
+
+    // products with from <= price < to; the last bucket has no upper bound (to is null)
+    public static class PriceBucket
+    {
+        private final BigDecimal from;
+        private final BigDecimal to;
+        private int count;
+
+        public PriceBucket(BigDecimal from, BigDecimal to)
+        {
+            this.from = from;
+            this.to = to;
+        }
+
+        public void add()
+        {
+            count++;
+        }
+
+        public BigDecimal getFrom()
+        {
+            return from;
+        }
+
+        public BigDecimal getTo()
+        {
+            return to;
+        }
+
+        public int getCount()
+        {
+            return count;
+        }
+    }
+}
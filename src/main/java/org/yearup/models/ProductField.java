@@ -0,0 +1,69 @@
+package org.yearup.models;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The properties of a {@link Product} as they appear in JSON, in the order
+ * Jackson writes them. Used to select which columns a listing reads and returns.
+ */
+public enum ProductField
+{
+    PRODUCT_ID("productId", Product::getProductId),
+    NAME("name", Product::getName),
+    PRICE("price", Product::getPrice),
+    CATEGORY_ID("categoryId", Product::getCategoryId),
+    DESCRIPTION("description", Product::getDescription),
+    COLOR("color", Product::getColor),
+    STOCK("stock", Product::getStock),
+    IMAGE_URL("imageUrl", Product::getImageUrl),
+    FEATURED("featured", Product::isFeatured);
+
+    private final String jsonName;
+    private final Function<Product, Object> accessor;
+
+    ProductField(String jsonName, Function<Product, Object> accessor)
+    {
+        this.jsonName = jsonName;
+        this.accessor = accessor;
+    }
+
+    public String getJsonName()
+    {
+        return jsonName;
+    }
+
+    public Object valueOf(Product product)
+    {
+        return accessor.apply(product);
+    }
+
+    public static ProductField fromJsonName(String name)
+    {
+        for (ProductField field : values())
+        {
+            if (field.jsonName.equalsIgnoreCase(name))
+                return field;
+        }
+        throw new IllegalArgumentException("Unknown product field: " + name);
+    }
+
+    /**
+     * Parses a comma separated list such as "name,price". The product id is
+     * always included because the pagination cursor is built from it.
+     */
+    public static Set<ProductField> parse(String fields)
+    {
+        if (fields == null || fields.isBlank())
+            return EnumSet.allOf(ProductField.class);
+
+        Set<ProductField> result = EnumSet.of(PRODUCT_ID);
+        for (String name : fields.split(","))
+        {
+            if (!name.isBlank())
+                result.add(fromJsonName(name.trim()));
+        }
+        return result;
+    }
+}
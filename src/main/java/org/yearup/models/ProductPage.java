@@ -0,0 +1,91 @@
+package org.yearup.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One page of a product listing. Only the requested fields are written to the
+ * response and {@code nextCursor} is null on the last page.
+ */
+public class ProductPage
+{
+    private static final String CURSOR_PREFIX = "p:";
+
+    private final List<Product> products;
+    private final Set<ProductField> fields;
+    private final String nextCursor;
+
+    public ProductPage(List<Product> products, Set<ProductField> fields, Integer lastProductId)
+    {
+        this.products = products;
+        this.fields = fields;
+        this.nextCursor = lastProductId == null ? null : encodeCursor(lastProductId);
+    }
+
+    @JsonIgnore
+    public List<Product> getProducts()
+    {
+        return products;
+    }
+
+    @JsonIgnore
+    public Set<ProductField> getFields()
+    {
+        return fields;
+    }
+
+    @JsonProperty("products")
+    public List<?> getProjectedProducts()
+    {
+        if (fields.size() == ProductField.values().length)
+            return products;
+
+        List<Map<String, Object>> projected = new ArrayList<>(products.size());
+        for (Product product : products)
+        {
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (ProductField field : fields)
+            {
+                values.put(field.getJsonName(), field.valueOf(product));
+            }
+            projected.add(values);
+        }
+        return projected;
+    }
+
+    public String getNextCursor()
+    {
+        return nextCursor;
+    }
+
+    public static String encodeCursor(int productId)
+    {
+        byte[] bytes = (CURSOR_PREFIX + productId).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Returns the product id a cursor points after, or 0 for a null cursor.
+     *
+     * @throws IllegalArgumentException when the cursor was not issued by {@link #encodeCursor(int)}
+     */
+    public static int decodeCursor(String cursor)
+    {
+        if (cursor == null || cursor.isEmpty())
+            return 0;
+
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        if (!decoded.startsWith(CURSOR_PREFIX))
+            throw new IllegalArgumentException("Invalid cursor");
+
+        return Integer.parseInt(decoded.substring(CURSOR_PREFIX.length()));
+    }
+}
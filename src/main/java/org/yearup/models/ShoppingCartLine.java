@@ -0,0 +1,40 @@
+package org.yearup.models;
+
+/**
+ * One product and quantity in a batch cart request.
+ */
+public class ShoppingCartLine
+{
+    private int productId;
+    private int quantity = 1;
+
+    public ShoppingCartLine()
+    {
+    }
+
+    public ShoppingCartLine(int productId, int quantity)
+    {
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+
+    public int getProductId()
+    {
+        return productId;
+    }
+
+    public void setProductId(int productId)
+    {
+        this.productId = productId;
+    }
+
+    public int getQuantity()
+    {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity)
+    {
+        this.quantity = quantity;
+    }
+}
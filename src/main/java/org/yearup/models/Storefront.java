@@ -0,0 +1,64 @@
+package org.yearup.models;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything the home page needs in one response. A section that could not be
+ * loaded before the deadline is left empty and named in missing.
+ */
+public class Storefront
+{
+    private List<Category> categories = new ArrayList<>();
+    private List<Product> featured = new ArrayList<>();
+    // keyed by category id, in category order
+    private Map<Integer, List<Product>> categoryProducts = new LinkedHashMap<>();
+    private List<String> missing = new ArrayList<>();
+
+    public List<Category> getCategories()
+    {
+        return categories;
+    }
+
+    public void setCategories(List<Category> categories)
+    {
+        this.categories = categories;
+    }
+
+    public List<Product> getFeatured()
+    {
+        return featured;
+    }
+
+    public void setFeatured(List<Product> featured)
+    {
+        this.featured = featured;
+    }
+
+    public Map<Integer, List<Product>> getCategoryProducts()
+    {
+        return categoryProducts;
+    }
+
+    public void setCategoryProducts(Map<Integer, List<Product>> categoryProducts)
+    {
+        this.categoryProducts = categoryProducts;
+    }
+
+    public List<String> getMissing()
+    {
+        return missing;
+    }
+
+    public void setMissing(List<String> missing)
+    {
+        this.missing = missing;
+    }
+
+    public boolean isPartial()
+    {
+        return !missing.isEmpty();
+    }
+}
@@ -3,12 +3,19 @@ package org.yearup.models;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.yearup.models.authentication.Authority;
 
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class User {
 
+   // role column value -> parsed authorities; every user row carries one of a few role strings
+   private static final int MAX_PARSED_ROLES = 64;
+   private static final Map<String, Set<Authority>> PARSED_ROLES = new ConcurrentHashMap<>();
+
    private int id;
    private String username;
    @JsonIgnore
@@ -70,16 +77,32 @@ public class User {
    }
 
    public void setAuthorities(String authorities) {
-      String[] roles = authorities.split(",");
-      for(String role : roles) {
-         addRole(role);
+      Set<Authority> parsed = PARSED_ROLES.get(authorities);
+      if (parsed == null) {
+         parsed = parseRoles(authorities);
+         // there are only a handful of distinct role strings, but do not let odd input grow the map forever
+         if (PARSED_ROLES.size() < MAX_PARSED_ROLES) PARSED_ROLES.put(authorities, parsed);
+      }
+      this.authorities.addAll(parsed);
+   }
+
+   private static Set<Authority> parseRoles(String authorities) {
+      Set<Authority> parsed = new HashSet<>();
+      for(String role : authorities.split(",")) {
+         parsed.add(toAuthority(role));
       }
+      return Collections.unmodifiableSet(parsed);
    }
 
    public void addRole(String role)
+   {
+      this.authorities.add(toAuthority(role));
+   }
+
+   private static Authority toAuthority(String role)
    {
       String authority = role.contains("ROLE_") ? role : "ROLE_" + role;
-      this.authorities.add(new Authority(authority));
+      return new Authority(authority);
    }
 
    @Override
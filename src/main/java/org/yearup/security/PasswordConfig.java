@@ -0,0 +1,23 @@
+package org.yearup.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * The password encoder lives in its own configuration so that the DAOs can use
+ * it without depending on WebSecurityConfig, which itself depends on the DAOs.
+ */
+@Configuration
+public class PasswordConfig
+{
+    /**
+     * @param strength the BCrypt cost factor for new hashes; existing hashes keep the cost they were created with
+     */
+    @Bean
+    public TimedPasswordEncoder passwordEncoder(@Value("${security.bcrypt.strength:10}") int strength)
+    {
+        return new TimedPasswordEncoder(new BCryptPasswordEncoder(strength));
+    }
+}
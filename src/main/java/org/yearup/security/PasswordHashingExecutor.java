@@ -0,0 +1,97 @@
+package org.yearup.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A small, fixed pool for work that hashes or verifies passwords.
+ *
+ * BCrypt is deliberately slow, so running it on the servlet threads lets a
+ * burst of logins take every thread and starve cheap requests. Work submitted
+ * here waits in a bounded queue instead; when the queue is full, submit throws
+ * RejectedExecutionException straight away so the caller can answer 429.
+ */
+@Component
+public class PasswordHashingExecutor
+{
+    private final ThreadPoolExecutor executor;
+    private final LongAdder rejected = new LongAdder();
+
+    public PasswordHashingExecutor(@Value("${security.hashing.threads:0}") int threads,
+                                   @Value("${security.hashing.queue-capacity:64}") int queueCapacity)
+    {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * @throws RejectedExecutionException when the queue is full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task)
+    {
+        try
+        {
+            return CompletableFuture.supplyAsync(task, executor);
+        }
+        catch (RejectedExecutionException e)
+        {
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    public int getPoolSize()
+    {
+        return executor.getMaximumPoolSize();
+    }
+
+    public int getActiveCount()
+    {
+        return executor.getActiveCount();
+    }
+
+    public int getQueueDepth()
+    {
+        return executor.getQueue().size();
+    }
+
+    public int getQueueCapacity()
+    {
+        return executor.getQueue().size() + executor.getQueue().remainingCapacity();
+    }
+
+    public long getCompletedCount()
+    {
+        return executor.getCompletedTaskCount();
+    }
+
+    public long getRejectedCount()
+    {
+        return rejected.sum();
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        executor.shutdown();
+    }
+}
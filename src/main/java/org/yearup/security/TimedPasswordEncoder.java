@@ -0,0 +1,63 @@
+package org.yearup.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.yearup.metrics.LatencyHistogram;
+
+/**
+ * Records how long the wrapped encoder takes to hash and to verify passwords.
+ */
+public class TimedPasswordEncoder implements PasswordEncoder
+{
+    private final PasswordEncoder delegate;
+    private final LatencyHistogram encodeTimes = new LatencyHistogram();
+    private final LatencyHistogram matchTimes = new LatencyHistogram();
+
+    public TimedPasswordEncoder(PasswordEncoder delegate)
+    {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            return delegate.encode(rawPassword);
+        }
+        finally
+        {
+            encodeTimes.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            return delegate.matches(rawPassword, encodedPassword);
+        }
+        finally
+        {
+            matchTimes.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword)
+    {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public LatencyHistogram getEncodeTimes()
+    {
+        return encodeTimes;
+    }
+
+    public LatencyHistogram getMatchTimes()
+    {
+        return matchTimes;
+    }
+}
@@ -1,6 +1,7 @@
 package org.yearup.security.jwt;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -15,11 +16,18 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.stereotype.Component;
+import org.yearup.data.cache.CacheRegistry;
+import org.yearup.data.cache.TtlCache;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Component
@@ -34,14 +42,23 @@ public class TokenProvider implements InitializingBean
     private final long tokenTimeout;
 
     private Key key;
+    // JwtParser is immutable and thread-safe, so one instance serves every request
+    private JwtParser jwtParser;
+
+    // tokens whose signature has already been checked, keyed by a SHA-256 of the token
+    private final TtlCache<String, Authentication> verifiedTokens;
 
 
     public TokenProvider(
             @Value("${jwt.secret}") String secret,
-            @Value("${jwt.token-timeout-seconds}") long tokenTimeoutSeconds)
+            @Value("${jwt.token-timeout-seconds}") long tokenTimeoutSeconds,
+            @Value("${jwt.cache.max-size:10000}") int cacheMaxSize,
+            @Value("${jwt.cache.ttl-seconds:300}") long cacheTtlSeconds,
+            CacheRegistry cacheRegistry)
     {
         this.secret = secret;
         this.tokenTimeout = tokenTimeoutSeconds * 1000;
+        this.verifiedTokens = cacheRegistry.create("jwt.verified", cacheMaxSize, cacheTtlSeconds, TimeUnit.SECONDS);
     }
 
     @Override
@@ -49,6 +66,7 @@ public class TokenProvider implements InitializingBean
     {
         byte[] keyBytes = Decoders.BASE64.decode(secret);
         this.key = Keys.hmacShaKeyFor(keyBytes);
+        this.jwtParser = Jwts.parserBuilder().setSigningKey(key).build();
     }
 
     public String createToken(Authentication authentication, boolean rememberMe)
@@ -68,14 +86,55 @@ public class TokenProvider implements InitializingBean
                 .compact();
     }
 
+    /**
+     * Verifies the token and returns the Authentication it carries, or null when
+     * the token is invalid or expired. A token is parsed and its signature checked
+     * only the first time it is seen; after that it is answered from a cache until
+     * it expires.
+     */
+    public Authentication resolveAuthentication(String token)
+    {
+        String tokenHash = hash(token);
+
+        TtlCache.Entry<Authentication> cached = verifiedTokens.getEntry(tokenHash);
+        if (cached != null)
+            return cached.getValue();
+
+        try
+        {
+            Claims claims = jwtParser.parseClaimsJws(token).getBody();
+            Authentication authentication = toAuthentication(claims, token);
+
+            long remainingMillis = claims.getExpiration() == null
+                    ? Long.MAX_VALUE
+                    : claims.getExpiration().getTime() - System.currentTimeMillis();
+            if (remainingMillis > 0)
+                verifiedTokens.put(tokenHash, authentication, remainingMillis, TimeUnit.MILLISECONDS);
+
+            return authentication;
+        }
+        catch (Exception e)
+        {
+            logger.info("Token Invalid.");
+            logger.trace("Token Invalid trace: {}.", e.toString());
+        }
+        return null;
+    }
+
     public Authentication getAuthentication(String token)
     {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
+
+        return toAuthentication(claims, token);
+    }
 
+    public boolean validateToken(String authToken)
+    {
+        return resolveAuthentication(authToken) != null;
+    }
+
+    private Authentication toAuthentication(Claims claims, String token)
+    {
         Collection<? extends GrantedAuthority> authorities =
                 Arrays.stream(claims.get(AUTHORITIES_KEY).toString().split(","))
                         .map(SimpleGrantedAuthority::new)
@@ -86,18 +145,17 @@ public class TokenProvider implements InitializingBean
         return new UsernamePasswordAuthenticationToken(principal, token, authorities);
     }
 
-    public boolean validateToken(String authToken)
+    private static String hash(String token)
     {
         try
         {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(authToken);
-            return true;
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
         }
-        catch (Exception e)
+        catch (NoSuchAlgorithmException e)
         {
-            logger.info("Token Invalid.");
-            logger.trace("Token Invalid trace: {}.", e.toString());
+            // every JVM is required to support SHA-256
+            throw new IllegalStateException(e);
         }
-        return false;
     }
 }
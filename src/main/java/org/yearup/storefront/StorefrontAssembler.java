@@ -0,0 +1,116 @@
+package org.yearup.storefront;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yearup.data.CategoryDao;
+import org.yearup.data.ProductDao;
+import org.yearup.models.Category;
+import org.yearup.models.Product;
+import org.yearup.models.Storefront;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Builds the storefront by running its queries side by side: categories and
+ * featured products start together, and the top products of every category
+ * start as soon as the categories are known.
+ *
+ * All of it shares one deadline. A branch that has not finished (or that
+ * failed) by then is reported as missing and the rest is returned. Cancelling
+ * a late branch keeps it from starting if it is still queued; one that is
+ * already running its query finishes, and its result is dropped.
+ */
+@Component
+public class StorefrontAssembler
+{
+    private static final Logger LOG = LoggerFactory.getLogger(StorefrontAssembler.class);
+
+    private final CategoryDao categoryDao;
+    private final ProductDao productDao;
+    private final StorefrontExecutor executor;
+    private final long deadlineNanos;
+    private final int featuredLimit;
+    private final int productsPerCategory;
+
+    public StorefrontAssembler(CategoryDao categoryDao,
+                               ProductDao productDao,
+                               StorefrontExecutor executor,
+                               @Value("${storefront.deadline-millis:300}") long deadlineMillis,
+                               @Value("${storefront.featured-limit:12}") int featuredLimit,
+                               @Value("${storefront.products-per-category:8}") int productsPerCategory)
+    {
+        this.categoryDao = categoryDao;
+        this.productDao = productDao;
+        this.executor = executor;
+        this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        this.featuredLimit = featuredLimit;
+        this.productsPerCategory = productsPerCategory;
+    }
+
+    public Storefront assemble()
+    {
+        long deadline = System.nanoTime() + deadlineNanos;
+        Storefront storefront = new Storefront();
+
+        CompletableFuture<List<Category>> categories = executor.submit(categoryDao::getAllCategories);
+        CompletableFuture<List<Product>> featured = executor.submit(() -> productDao.listFeatured(featuredLimit));
+
+        List<Category> loadedCategories = await(categories, deadline, "categories", storefront);
+        if (loadedCategories != null)
+        {
+            storefront.setCategories(loadedCategories);
+
+            Map<Integer, CompletableFuture<List<Product>>> listings = new LinkedHashMap<>();
+            for (Category category : loadedCategories)
+            {
+                int categoryId = category.getCategoryId();
+                listings.put(categoryId, executor.submit(() -> productDao.listTopByCategoryId(categoryId, productsPerCategory)));
+            }
+
+            listings.forEach((categoryId, listing) -> {
+                List<Product> products = await(listing, deadline, "categoryProducts." + categoryId, storefront);
+                if (products != null)
+                    storefront.getCategoryProducts().put(categoryId, products);
+            });
+        }
+
+        List<Product> loadedFeatured = await(featured, deadline, "featured", storefront);
+        if (loadedFeatured != null)
+            storefront.setFeatured(loadedFeatured);
+
+        return storefront;
+    }
+
+    // waits for the branch until the shared deadline; on a timeout or failure the branch is recorded as missing
+    private static <T> T await(CompletableFuture<T> branch, long deadline, String name, Storefront storefront)
+    {
+        try
+        {
+            return branch.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+        catch (TimeoutException e)
+        {
+            branch.cancel(false);
+            LOG.debug("Storefront branch {} missed the deadline", name);
+        }
+        catch (ExecutionException e)
+        {
+            LOG.warn("Storefront branch {} failed", name, e.getCause());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            branch.cancel(false);
+        }
+        storefront.getMissing().add(name);
+        return null;
+    }
+}
@@ -0,0 +1,71 @@
+package org.yearup.storefront;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A fixed pool for the DAO calls that one composite request fans out into.
+ *
+ * The pool and its queue are bounded, so a traffic spike cannot turn each
+ * storefront request into an unbounded number of threads or connections. A
+ * full queue fails the task at once, and the caller treats that branch as
+ * missing rather than waiting for it.
+ */
+@Component
+public class StorefrontExecutor
+{
+    private final ThreadPoolExecutor executor;
+    private final LongAdder rejected = new LongAdder();
+
+    public StorefrontExecutor(@Value("${storefront.threads:16}") int threads,
+                              @Value("${storefront.queue-capacity:256}") int queueCapacity)
+    {
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "storefront-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * @return a future of the task, already failed with RejectedExecutionException when the queue is full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task)
+    {
+        try
+        {
+            return CompletableFuture.supplyAsync(task, executor);
+        }
+        catch (RejectedExecutionException e)
+        {
+            rejected.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public long getRejectedCount()
+    {
+        return rejected.sum();
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,102 @@
+package org.yearup.data;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.yearup.models.Product;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductJsonWriterTest
+{
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final List<Product> products = List.of(
+            new Product(1, "Smartphone", new BigDecimal("499.99"), 1, "A \"powerful\" phone\twith a \\ in it", "Black", 50, true, "smartphone.jpg"),
+            new Product(2, "Café ☕ 😀 \u0001", new BigDecimal("5.00"), 2, null, null, 0, false, null),
+            new Product()
+    );
+
+    @Test
+    public void write_fromProducts_shouldMatchJackson() throws Exception
+    {
+        // act
+        String actual = writeArray(generator -> {
+            for (Product product : products)
+            {
+                ProductJsonWriter.write(generator, product);
+            }
+        });
+
+        // assert
+        assertEquals(new String(objectMapper.writeValueAsBytes(products), StandardCharsets.UTF_8), actual, "Because the output must be byte for byte what Jackson writes.");
+    }
+
+    @Test
+    public void write_fromResultSetRows_shouldMatchJackson() throws Exception
+    {
+        // arrange - the first two products, as rows of SELECT * FROM products
+        List<Product> stored = products.subList(0, 2);
+
+        // act
+        String actual = writeArray(generator -> {
+            for (Product product : stored)
+            {
+                ProductJsonWriter.write(generator, row(product));
+            }
+        });
+
+        // assert
+        assertEquals(new String(objectMapper.writeValueAsBytes(stored), StandardCharsets.UTF_8), actual, "Because a row must be written as its Product would be.");
+    }
+
+    @FunctionalInterface
+    private interface Body
+    {
+        void write(JsonGenerator generator) throws Exception;
+    }
+
+    private String writeArray(Body body) throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out))
+        {
+            generator.writeStartArray();
+            body.write(generator);
+            generator.writeEndArray();
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    // a ResultSet positioned on one row, answering the getters mapRow uses
+    private static ResultSet row(Product product)
+    {
+        Map<String, Object> columns = new HashMap<>();
+        columns.put("product_id", product.getProductId());
+        columns.put("name", product.getName());
+        columns.put("price", product.getPrice());
+        columns.put("category_id", product.getCategoryId());
+        columns.put("description", product.getDescription());
+        columns.put("color", product.getColor());
+        columns.put("stock", product.getStock());
+        columns.put("featured", product.isFeatured());
+        columns.put("image_url", product.getImageUrl());
+
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+                (proxy, method, args) -> {
+                    if (!method.getName().startsWith("get") || args == null || !(args[0] instanceof String))
+                        throw new UnsupportedOperationException(method.getName());
+                    return columns.get(args[0]);
+                });
+    }
+}
@@ -0,0 +1,49 @@
+package org.yearup.data.bulk;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CsvReaderTest
+{
+    @Test
+    public void next_shouldRead_quotedFieldsWithCommasQuotesAndLineBreaks() throws IOException
+    {
+        // arrange
+        CsvReader reader = new CsvReader(new StringReader(
+                "name,description\r\n" +
+                "Laptop,\"Fast, light\"\r\n" +
+                "\"Phone \"\"Pro\"\"\",\"line one\nline two\"\n"));
+
+        // act
+        var header = reader.next();
+        var first = reader.next();
+        var second = reader.next();
+        var end = reader.next();
+
+        // assert
+        assertEquals(List.of("name", "description"), header);
+        assertEquals(List.of("Laptop", "Fast, light"), first, "Because the comma is inside quotes.");
+        assertEquals(List.of("Phone \"Pro\"", "line one\nline two"), second, "Because doubled quotes and line breaks are part of a quoted field.");
+        assertNull(end, "Because the input has no more records.");
+    }
+
+    @Test
+    public void escape_shouldQuote_onlyWhenNeeded() throws IOException
+    {
+        // act
+        var plain = CsvReader.escape("Black");
+        var quoted = CsvReader.escape("say \"hi\", bye");
+        var roundTrip = new CsvReader(new StringReader(quoted)).next();
+
+        // assert
+        assertEquals("Black", plain);
+        assertEquals("\"say \"\"hi\"\", bye\"", quoted);
+        assertEquals(List.of("say \"hi\", bye"), roundTrip, "Because an escaped value must read back unchanged.");
+    }
+}
@@ -0,0 +1,73 @@
+package org.yearup.data.bulk;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.models.BulkImportError;
+import org.yearup.models.Product;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductImporterTest
+{
+    @Test
+    public void importNdjson_shouldReportErrors_byLineNumber()
+    {
+        // arrange - batches of two, so the row numbers kept for database errors wrap around several times
+        MySqlProductDao productDao = new MySqlProductDao(null)
+        {
+            // rejects products named "duplicate" the way a failed insert would, in batches like the real one
+            @Override
+            public int createAll(Iterator<Product> products, int batchSize, BiConsumer<Integer, RuntimeException> onError)
+            {
+                List<Product> batch = new ArrayList<>();
+                int inserted = 0;
+                int position = 0;
+                while (products.hasNext())
+                {
+                    batch.add(products.next());
+                    if (batch.size() == batchSize || !products.hasNext())
+                    {
+                        for (int i = 0; i < batch.size(); i++)
+                        {
+                            if (batch.get(i).getName().equals("duplicate"))
+                                onError.accept(position + i, new RuntimeException("Duplicate entry"));
+                            else
+                                inserted++;
+                        }
+                        position += batch.size();
+                        batch.clear();
+                    }
+                }
+                return inserted;
+            }
+        };
+        ProductImporter importer = new ProductImporter(productDao, Jackson2ObjectMapperBuilder.json().build(), 2);
+
+        String ndjson = "{\"name\": \"a\", \"price\": 1, \"categoryId\": 1}\n" +
+                "\n" +
+                "{\"name\": \"b\", \"price\": 1, \"categoryId\": 1}\n" +
+                "not json\n" +
+                "{\"name\": \"c\", \"price\": 1, \"categoryId\": 1}\n" +
+                "   \n" +
+                "{\"name\": \"d\", \"price\": 1, \"categoryId\": 1}\n" +
+                "{\"name\": \"duplicate\", \"price\": 1, \"categoryId\": 1}\n" +
+                "{\"name\": \"e\", \"price\": 1, \"categoryId\": 1}\n";
+
+        // act
+        var result = importer.importNdjson(new BufferedReader(new StringReader(ndjson)));
+
+        // assert
+        assertEquals(5, result.getImported());
+        assertEquals(List.of(4L, 8L), result.getErrors().stream().map(BulkImportError::getRow).collect(Collectors.toList()),
+                     "Because blank lines count as lines, for parse errors and database errors alike.");
+    }
+}
@@ -0,0 +1,107 @@
+package org.yearup.data.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest
+{
+    @Test
+    public void concurrentCalls_forTheSameKey_shouldShareOneLoad() throws Exception
+    {
+        // arrange
+        SingleFlight<Integer, String> singleFlight = new SingleFlight<>("test");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+
+        try
+        {
+            // act
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 5; i++)
+            {
+                results.add(executor.submit(() -> singleFlight.execute(1, () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "value";
+                })));
+            }
+            // hold the load until the other four callers are waiting on it
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (singleFlight.getCoalesced() < 4 && System.nanoTime() < deadline)
+            {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            // assert
+            for (Future<String> result : results)
+            {
+                assertEquals("value", result.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get(), "Because the callers arrived while the first load was in flight.");
+            assertEquals(5, singleFlight.getCalls());
+            assertEquals(4, singleFlight.getCoalesced());
+            assertEquals(0, singleFlight.getInFlight(), "Because nothing is kept after the load finishes.");
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void callsAfterTheLoad_shouldLoadAgain()
+    {
+        // arrange
+        SingleFlight<Integer, Integer> singleFlight = new SingleFlight<>("test");
+        AtomicInteger loads = new AtomicInteger();
+
+        // act
+        singleFlight.execute(1, loads::incrementAndGet);
+        int actual = singleFlight.execute(1, loads::incrementAndGet);
+
+        // assert
+        assertEquals(2, actual, "Because results are not cached once the load is done.");
+        assertEquals(0, singleFlight.getCoalesced());
+    }
+
+    @Test
+    public void failedLoad_shouldBeRethrown_toTheCaller()
+    {
+        // arrange
+        SingleFlight<Integer, String> singleFlight = new SingleFlight<>("test");
+        RuntimeException failure = new RuntimeException("database is down");
+
+        // act
+        RuntimeException actual = assertThrows(RuntimeException.class, () -> singleFlight.execute(1, () -> { throw failure; }));
+
+        // assert
+        assertSame(failure, actual, "Because the loader's exception is passed on unchanged.");
+        assertEquals("value", singleFlight.execute(1, () -> "value"), "Because a failed load is not remembered.");
+    }
+
+    private static void await(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await(10, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
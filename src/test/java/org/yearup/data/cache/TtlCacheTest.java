@@ -0,0 +1,127 @@
+package org.yearup.data.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TtlCacheTest
+{
+    @Test
+    public void get_shouldLoadOnce_andCountHitsAndMisses()
+    {
+        // arrange
+        TtlCache<Integer, String> cache = new TtlCache<>("test", 10, 1, TimeUnit.MINUTES);
+        AtomicInteger loads = new AtomicInteger();
+
+        // act
+        cache.get(1, key -> "value " + loads.incrementAndGet());
+        String actual = cache.get(1, key -> "value " + loads.incrementAndGet());
+
+        // assert
+        assertEquals("value 1", actual, "Because the second call should be served from the cache.");
+        assertEquals(1, cache.getStats().getHits());
+        assertEquals(1, cache.getStats().getMisses());
+    }
+
+    @Test
+    public void get_shouldCache_nullValues()
+    {
+        // arrange
+        TtlCache<Integer, String> cache = new TtlCache<>("test", 10, 1, TimeUnit.MINUTES);
+        AtomicInteger loads = new AtomicInteger();
+
+        // act
+        cache.get(1, key -> { loads.incrementAndGet(); return null; });
+        String actual = cache.get(1, key -> { loads.incrementAndGet(); return null; });
+
+        // assert
+        assertNull(actual);
+        assertEquals(1, loads.get(), "Because a cached 'not found' should not be loaded again.");
+    }
+
+    @Test
+    public void expiredAndInvalidatedEntries_shouldBeReloaded()
+    {
+        // arrange
+        TtlCache<Integer, String> cache = new TtlCache<>("test", 10, 1, TimeUnit.MINUTES);
+        cache.put(1, "short lived", 0, TimeUnit.NANOSECONDS);
+        cache.put(2, "invalidated");
+
+        // act
+        cache.invalidate(2);
+
+        // assert
+        assertNull(cache.getEntry(1), "Because the entry has expired.");
+        assertNull(cache.getEntry(2), "Because the entry was invalidated.");
+    }
+
+    @Test
+    public void get_shouldNotCache_aValueLoadedBeforeAnInvalidation()
+    {
+        // arrange
+        TtlCache<Integer, String> cache = new TtlCache<>("test", 10, 1, TimeUnit.MINUTES);
+
+        // act - a write commits and invalidates while the first load is still reading
+        String stale = cache.get(1, key -> {
+            cache.invalidate(key);
+            return "before the write";
+        });
+        String actual = cache.get(1, key -> "after the write");
+
+        // assert
+        assertEquals("before the write", stale, "Because the caller still gets what it loaded.");
+        assertEquals("after the write", actual, "Because the stale load must not have been cached.");
+    }
+
+    @Test
+    public void put_shouldNotGrow_pastMaxSize()
+    {
+        // arrange
+        TtlCache<Integer, Integer> cache = new TtlCache<>("test", 100, 1, TimeUnit.MINUTES);
+
+        // act
+        for (int i = 0; i < 1000; i++)
+        {
+            cache.put(i, i);
+        }
+
+        // assert
+        assertTrue(cache.size() <= 100, "Because the cache is bounded.");
+        assertEquals(900, cache.getStats().getEvictions());
+    }
+
+    @Test
+    public void put_shouldEvictExpiredEntries_beyondTheFrontOfTheMap()
+    {
+        // arrange - the entries sampled first are live, the expired ones come after them
+        TtlCache<Integer, Integer> cache = new TtlCache<>("test", 40, 1, TimeUnit.MINUTES);
+        for (int i = 0; i < 24; i++)
+        {
+            cache.put(i, i);
+        }
+        for (int i = 24; i < 40; i++)
+        {
+            cache.put(i, i, 0, TimeUnit.NANOSECONDS);
+        }
+
+        // act
+        for (int i = 40; i < 56; i++)
+        {
+            cache.put(i, i);
+        }
+
+        // assert
+        int kept = 0;
+        for (int i = 0; i < 24; i++)
+        {
+            if (cache.getEntry(i) != null)
+                kept++;
+        }
+        assertTrue(kept >= 23, "Because the expired entries should make room, not the live ones sampled first; kept " + kept);
+    }
+}
@@ -0,0 +1,166 @@
+package org.yearup.data.cart;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.data.mysql.MySqlShoppingCartDao;
+import org.yearup.models.Product;
+import org.yearup.models.ShoppingCart;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindShoppingCartDaoTest
+{
+    // what was handed to writeBack, one entry per call
+    private final List<Map<Integer, Map<Integer, Integer>>> writes = new ArrayList<>();
+    private boolean failWrites;
+    // deleted from the database after being added to a cart
+    private final Set<Integer> deletedProducts = new HashSet<>();
+    private final Set<Integer> deletedUsers = new HashSet<>();
+
+    private WriteBehindShoppingCartDao cartDao;
+
+    @BeforeEach
+    public void setup()
+    {
+        MySqlShoppingCartDao table = new MySqlShoppingCartDao(null)
+        {
+            @Override
+            public ShoppingCart getByUserId(int userId)
+            {
+                return new ShoppingCart();
+            }
+
+            @Override
+            public void writeBack(Collection<Integer> clearedUserIds, Map<Integer, Map<Integer, Integer>> quantitiesByUser)
+            {
+                if (failWrites)
+                    throw new RuntimeException("database is down");
+                // one missing reference fails the whole transaction, like the foreign keys on shopping_cart
+                quantitiesByUser.forEach((userId, quantities) -> quantities.forEach((productId, quantity) -> {
+                    if (quantity > 0 && (deletedUsers.contains(userId) || deletedProducts.contains(productId)))
+                        throw new RuntimeException(new SQLException("Cannot add or update a child row: a foreign key constraint fails", "23000", 1452));
+                }));
+                writes.add(new HashMap<>(quantitiesByUser));
+            }
+        };
+        MySqlProductDao products = new MySqlProductDao(null)
+        {
+            @Override
+            public Map<Integer, Product> getByIds(Collection<Integer> productIds)
+            {
+                Map<Integer, Product> products = new HashMap<>();
+                productIds.stream().filter(productId -> !deletedProducts.contains(productId)).forEach(productId -> products.put(productId, new Product(productId, "Product " + productId, new BigDecimal("10.00"), 1, "", "", 10, false, "")));
+                return products;
+            }
+        };
+
+        // a long interval, so only the explicit flush() calls write
+        cartDao = new WriteBehindShoppingCartDao(table, products, 3_600_000, 1800);
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        failWrites = false;
+        cartDao.shutdown();
+    }
+
+    @Test
+    public void mutations_shouldBeVisibleAtOnce_andCoalescedIntoOneWrite()
+    {
+        // act
+        cartDao.addProducts(1, Map.of(7, 1));
+        cartDao.addProducts(1, Map.of(7, 1));
+        cartDao.updateQuantities(1, Map.of(7, 5));
+        var cart = cartDao.getByUserId(1);
+        cartDao.flush();
+
+        // assert
+        assertEquals(5, cart.get(7).getQuantity(), "Because the in-memory cart is updated immediately.");
+        assertEquals(List.of(Map.of(1, Map.of(7, 5))), writes, "Because three changes to one row are written once, with the final quantity.");
+    }
+
+    @Test
+    public void failedWrite_shouldKeepChanges_forTheNextFlush()
+    {
+        // arrange
+        cartDao.addProducts(1, Map.of(7, 2));
+        failWrites = true;
+
+        // act
+        assertThrows(RuntimeException.class, () -> cartDao.flush());
+        failWrites = false;
+        cartDao.addProducts(1, Map.of(8, 1));
+        cartDao.flush();
+
+        // assert
+        assertEquals(List.of(Map.of(1, Map.of(7, 2, 8, 1))), writes, "Because the failed changes are put back and written with the new ones.");
+    }
+
+    @Test
+    public void productDeletedBeforeTheFlush_shouldBeDropped_withoutHoldingBackOtherCarts()
+    {
+        // arrange
+        cartDao.addProducts(1, Map.of(7, 1));
+        cartDao.addProducts(2, Map.of(7, 1, 8, 2));
+        deletedProducts.add(8);
+
+        // act
+        cartDao.flush();
+        cartDao.flush();
+        int storedWrites = cartDao.withStoredCart(2, writes::size);
+
+        // assert
+        assertEquals(List.of(Map.of(1, Map.of(7, 1)), Map.of(2, Map.of(7, 1))), writes,
+                     "Because each cart is written on its own, without the line for the deleted product.");
+        assertEquals(2, storedWrites, "Because the dropped line is not queued again, so checkout has nothing left to write.");
+    }
+
+    @Test
+    public void userDeletedBeforeTheFlush_shouldBeDropped_withoutHoldingBackOtherCarts()
+    {
+        // arrange
+        cartDao.addProducts(1, Map.of(7, 1));
+        cartDao.addProducts(2, Map.of(7, 1));
+        deletedUsers.add(2);
+
+        // act
+        cartDao.flush();
+        cartDao.flush();
+
+        // assert
+        assertEquals(List.of(Map.of(1, Map.of(7, 1))), writes, "Because the other user's cart is written, and the deleted user's is not retried.");
+    }
+
+    @Test
+    public void withStoredCart_shouldWritePendingChanges_beforeTheWork()
+    {
+        // arrange
+        cartDao.addProducts(1, Map.of(7, 3));
+
+        // act
+        cartDao.withStoredCart(1, () -> {
+            assertEquals(1, writes.size(), "Because the cart must be in the table before checkout reads it.");
+            return null;
+        });
+        cartDao.flush();
+
+        // assert
+        assertEquals(1, writes.size(), "Because nothing was left to write after checkout.");
+        assertTrue(cartDao.getByUserId(1).getItems().isEmpty(), "Because the cart is reloaded from the table after checkout.");
+    }
+}
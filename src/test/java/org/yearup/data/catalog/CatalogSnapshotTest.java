@@ -0,0 +1,206 @@
+package org.yearup.data.catalog;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.yearup.models.Product;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CatalogSnapshotTest
+{
+    private CatalogSnapshot snapshot;
+
+    @BeforeEach
+    public void setup()
+    {
+        snapshot = CatalogSnapshot.of(List.of(
+                product(1, "499.99", 1, "Black"),
+                product(2, "899.99", 1, "Gray"),
+                product(3, "99.99", 1, "White"),
+                product(4, "29.99", 2, "Black"),
+                product(5, "59.99", 2, null),
+                product(6, "99.99", 3, "black")
+        ));
+    }
+
+    @Test
+    public void search_withoutFilters_shouldReturn_allProductsInIdOrder()
+    {
+        // act
+        var actual = ids(snapshot.search(null, null, null, null));
+
+        // assert
+        assertEquals(List.of(1, 2, 3, 4, 5, 6), actual, "Because no filter was given.");
+    }
+
+    @Test
+    public void search_shouldApply_priceRangeInclusively()
+    {
+        // act
+        var actual = ids(snapshot.search(null, new BigDecimal("59.99"), new BigDecimal("499.99"), ""));
+
+        // assert
+        assertEquals(List.of(1, 3, 5, 6), actual, "Because both price bounds are inclusive.");
+    }
+
+    @Test
+    public void search_shouldCombine_categoryAndColor_ignoringCase()
+    {
+        // act
+        var byCategory = ids(snapshot.search(1, null, new BigDecimal("500"), "black"));
+        var byColor = ids(snapshot.search(-1, new BigDecimal("-1"), null, "BLACK"));
+
+        // assert
+        assertEquals(List.of(1), byCategory, "Because only product 1 is a black category 1 product under 500.");
+        assertEquals(List.of(1, 4, 6), byColor, "Because color matching ignores case.");
+    }
+
+    @Test
+    public void with_and_without_shouldReturn_newSnapshots()
+    {
+        // act
+        var updated = snapshot.with(product(4, "19.99", 1, "Black")).without(2);
+
+        // assert
+        assertEquals(List.of(1, 3, 4), ids(updated.listByCategoryId(1)), "Because product 4 moved to category 1 and product 2 was removed.");
+        assertEquals(List.of(1, 2, 3), ids(snapshot.listByCategoryId(1)), "Because the original snapshot must not change.");
+        assertNull(updated.getById(2));
+    }
+
+    @Test
+    public void withStock_shouldChangeOnlyStock()
+    {
+        // act
+        var updated = snapshot.withStock(Map.of(2, 0, 99, 5));
+
+        // assert
+        assertEquals(0, updated.getById(2).getStock(), "Because product 2 sold out.");
+        assertEquals(10, snapshot.getById(2).getStock(), "Because the original snapshot must not change.");
+        assertEquals(List.of(2), ids(updated.search(1, new BigDecimal("899.99"), null, null)), "Because the price indexes still find product 2.");
+    }
+
+    @Test
+    public void listTopByCategoryId_shouldReturn_featuredFirst_thenIdOrder()
+    {
+        // arrange
+        Product featured = product(3, "99.99", 1, "White");
+        featured.setFeatured(true);
+        var withFeatured = snapshot.with(featured);
+
+        // act
+        var actual = ids(withFeatured.listTopByCategoryId(1, 2));
+
+        // assert
+        assertEquals(List.of(3, 1), actual, "Because featured product 3 comes first and the limit is 2.");
+        assertEquals(List.of(3), ids(withFeatured.listFeatured(10)), "Because only product 3 is featured.");
+    }
+
+    @Test
+    public void getById_shouldRebuild_everyFieldOfTheProduct()
+    {
+        // arrange
+        Product stored = new Product(7, "Café chair ☕", new BigDecimal("12.5"), 2, null, "Red", 3, true, "chair.jpg");
+
+        // act
+        Product actual = snapshot.with(stored).getById(7);
+
+        // assert
+        assertEquals("Café chair ☕", actual.getName(), "Because names are stored as UTF-8 and decoded again.");
+        assertEquals(new BigDecimal("12.50"), actual.getPrice(), "Because prices are stored in cents, like the two-decimal column.");
+        assertNull(actual.getDescription(), "Because a null text is kept apart from an empty one.");
+        assertEquals("Red", actual.getColor());
+        assertEquals(2, actual.getCategoryId());
+        assertEquals(3, actual.getStock());
+        assertEquals(true, actual.isFeatured());
+        assertEquals("chair.jpg", actual.getImageUrl());
+    }
+
+    @Test
+    public void writeSearchJson_shouldMatchJackson_forTheSameResults() throws Exception
+    {
+        // arrange
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        var updated = snapshot.with(new Product(7, "Café \"chair\" ☕ 😀", new BigDecimal("12.5"), 1, null, "Red", 3, true, "chair.jpg"));
+
+        // act
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out))
+        {
+            generator.writeStartArray();
+            updated.writeSearchJson(1, null, null, null, generator);
+            generator.writeEndArray();
+        }
+
+        // assert
+        assertEquals(new String(objectMapper.writeValueAsBytes(updated.search(1, null, null, null)), StandardCharsets.UTF_8), out.toString(StandardCharsets.UTF_8),
+                     "Because the columns must be written exactly as Jackson writes the Products built from them.");
+    }
+
+    @Test
+    public void patchedSnapshots_shouldMatch_snapshotsBuiltFromScratch() throws Exception
+    {
+        // arrange
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        Random random = new Random(42);
+        String[] colors = { "Black", "black", "Gray", "Red", null };
+        Map<Integer, Product> products = new TreeMap<>();
+        snapshot.getAll().forEach(product -> products.put(product.getProductId(), product));
+        CatalogSnapshot patched = snapshot;
+
+        for (int i = 0; i < 300; i++)
+        {
+            // act - add, replace or remove a random product
+            int id = 1 + random.nextInt(20);
+            if (random.nextInt(4) == 0)
+            {
+                products.remove(id);
+                patched = patched.without(id);
+            }
+            else
+            {
+                Product product = new Product(id, "Product " + i, BigDecimal.valueOf(random.nextInt(50) * 100 + 99, 2), 1 + random.nextInt(3),
+                                              random.nextBoolean() ? null : "Édition " + i, colors[random.nextInt(colors.length)],
+                                              random.nextInt(5), random.nextBoolean(), "");
+                products.put(id, product);
+                patched = patched.with(product);
+            }
+
+            // assert
+            CatalogSnapshot rebuilt = CatalogSnapshot.of(products.values());
+            assertEquals(objectMapper.writeValueAsString(rebuilt.getAll()), objectMapper.writeValueAsString(patched.getAll()),
+                         "Because a patched snapshot must hold the same products as one built from scratch.");
+            for (Integer categoryId : new Integer[] { null, 1, 2, 3 })
+            {
+                for (String color : new String[] { null, "BLACK", "gray", "Red" })
+                {
+                    assertEquals(ids(rebuilt.search(categoryId, new BigDecimal("10.99"), new BigDecimal("30.99"), color)),
+                                 ids(patched.search(categoryId, new BigDecimal("10.99"), new BigDecimal("30.99"), color)),
+                                 "Because the patched indexes must find the same products after step " + i + ".");
+                }
+            }
+        }
+    }
+
+    private static List<Integer> ids(List<Product> products)
+    {
+        return products.stream().map(Product::getProductId).collect(Collectors.toList());
+    }
+
+    private static Product product(int id, String price, int categoryId, String color)
+    {
+        return new Product(id, "Product " + id, new BigDecimal(price), categoryId, "", color, 10, false, "");
+    }
+}
@@ -0,0 +1,45 @@
+package org.yearup.data.catalog;
+
+import org.junit.jupiter.api.Test;
+import org.yearup.data.ProductChangedEvent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class CatalogVersionsTest
+{
+    private final CatalogVersions versions = new CatalogVersions();
+
+    @Test
+    public void productChange_shouldChange_onlyThatProductAndTheCollection()
+    {
+        // arrange
+        String collection = versions.products().getEtag();
+        String changed = versions.product(1).getEtag();
+        String untouched = versions.product(2).getEtag();
+
+        // act
+        versions.onProductChanged(new ProductChangedEvent(ProductChangedEvent.Type.UPDATED, 1, null));
+
+        // assert
+        assertNotEquals(collection, versions.products().getEtag(), "Because a product in the collection changed.");
+        assertNotEquals(changed, versions.product(1).getEtag(), "Because product 1 changed.");
+        assertEquals(untouched, versions.product(2).getEtag(), "Because product 2 did not change.");
+    }
+
+    @Test
+    public void reload_shouldChange_everyProduct()
+    {
+        // arrange
+        versions.onProductChanged(new ProductChangedEvent(ProductChangedEvent.Type.UPDATED, 1, null));
+        String first = versions.product(1).getEtag();
+        String second = versions.product(2).getEtag();
+
+        // act
+        versions.onProductChanged(new ProductChangedEvent(ProductChangedEvent.Type.RELOADED, 0, null));
+
+        // assert
+        assertNotEquals(first, versions.product(1).getEtag(), "Because a reload may have changed any product.");
+        assertNotEquals(second, versions.product(2).getEtag(), "Because a reload may have changed any product.");
+    }
+}
@@ -0,0 +1,76 @@
+package org.yearup.data.catalog;
+
+import org.junit.jupiter.api.Test;
+import org.yearup.data.ProductChangedEvent;
+import org.yearup.data.cache.CacheRegistry;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.models.Product;
+import org.yearup.models.ProductFacets;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductFacetServiceTest
+{
+    @Test
+    public void facetCounter_shouldCount_categoriesColorsAndPriceBuckets_inOnePass()
+    {
+        // arrange
+        var counter = new ProductFacetService.FacetCounter(List.of(new BigDecimal("0"), new BigDecimal("50"), new BigDecimal("100")));
+
+        // act
+        counter.add(product(1, "19.99", 1, "Black"));
+        counter.add(product(2, "50.00", 1, "black"));
+        counter.add(product(3, "499.99", 2, "Red"));
+        counter.add(product(4, "99.99", 2, null));
+        ProductFacets facets = counter.toFacets();
+
+        // assert
+        assertEquals(4, facets.getTotal());
+        assertEquals(new BigDecimal("19.99"), facets.getCategories().get(0).getMinPrice(), "Because 19.99 is the cheapest product in category 1.");
+        assertEquals(new BigDecimal("50.00"), facets.getCategories().get(0).getMaxPrice(), "Because 50.00 is the dearest product in category 1.");
+        assertEquals(List.of(2, 1), facets.getColors().stream().map(ProductFacets.ColorFacet::getCount).collect(Collectors.toList()),
+                     "Because colors are grouped ignoring case and products without a color are not counted.");
+        assertEquals(List.of(1, 2, 1), facets.getPrices().stream().map(ProductFacets.PriceBucket::getCount).collect(Collectors.toList()),
+                     "Because a price equal to an edge falls in the bucket that starts there.");
+    }
+
+    @Test
+    public void getFacets_shouldStayCached_acrossStockChanges_butNotProductWrites()
+    {
+        // arrange
+        int[] scans = new int[1];
+        MySqlProductDao productDao = new MySqlProductDao(null)
+        {
+            @Override
+            public void streamSearch(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String color, Consumer<Product> consumer)
+            {
+                scans[0]++;
+                consumer.accept(product(1, "19.99", 1, "Black"));
+            }
+        };
+        var service = new ProductFacetService(productDao, new CacheRegistry(), "0,50,100", 300, 100);
+
+        // act
+        service.getFacets(1, null, null, null);
+        service.onProductChanged(new ProductChangedEvent(Map.of(1, 9)));
+        service.getFacets(1, null, null, null);
+        int scansAfterCheckout = scans[0];
+        service.onProductChanged(new ProductChangedEvent(ProductChangedEvent.Type.UPDATED, 1, product(1, "29.99", 1, "Black")));
+        service.getFacets(1, null, null, null);
+
+        // assert
+        assertEquals(1, scansAfterCheckout, "Because no facet depends on stock.");
+        assertEquals(2, scans[0], "Because an update can change prices, categories and colors.");
+    }
+
+    private static Product product(int id, String price, int categoryId, String color)
+    {
+        return new Product(id, "Product " + id, new BigDecimal(price), categoryId, "", color, 10, false, "");
+    }
+}
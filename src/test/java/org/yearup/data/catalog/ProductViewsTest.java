@@ -0,0 +1,138 @@
+package org.yearup.data.catalog;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.ProductChangedEvent;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.models.Product;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductViewsTest
+{
+    // the catalog the views read their products from
+    private final Map<Integer, Product> catalog = new TreeMap<>();
+    private ProductViews views;
+
+    @BeforeEach
+    public void setup()
+    {
+        for (Product product : List.of(
+                product(1, 1, 10, true),
+                product(2, 1, 3, false),
+                product(3, 2, 0, true),
+                product(4, 2, 7, false)))
+        {
+            catalog.put(product.getProductId(), product);
+        }
+
+        MySqlProductDao productDao = new MySqlProductDao(null)
+        {
+            @Override
+            public List<Product> getAllProducts()
+            {
+                return new ArrayList<>(catalog.values());
+            }
+
+            @Override
+            public Map<Integer, Product> getByIds(Collection<Integer> productIds)
+            {
+                Map<Integer, Product> products = new HashMap<>();
+                productIds.stream().filter(catalog::containsKey).forEach(productId -> products.put(productId, catalog.get(productId)));
+                return products;
+            }
+        };
+        views = new ProductViews(productDao, 5);
+    }
+
+    @Test
+    public void views_shouldBeBuilt_fromTheInitialLoad()
+    {
+        // act
+        var featured = ids(views.featured(10));
+        var inStock = ids(views.inStock(2, 10));
+        var lowStock = ids(views.lowStock(10));
+
+        // assert
+        assertEquals(List.of(1, 3), featured, "Because products 1 and 3 are featured.");
+        assertEquals(List.of(4), inStock, "Because product 3 is out of stock.");
+        assertEquals(List.of(3, 2), lowStock, "Because low stock is listed lowest stock first.");
+    }
+
+    @Test
+    public void changes_shouldMoveProducts_betweenViews()
+    {
+        // arrange
+        views.featured(1);
+
+        // act
+        change(new ProductChangedEvent(ProductChangedEvent.Type.UPDATED, 1, product(1, 2, 1, false)));
+        change(new ProductChangedEvent(ProductChangedEvent.Type.DELETED, 2, null));
+        change(new ProductChangedEvent(ProductChangedEvent.Type.CREATED, 5, product(5, 1, 20, true)));
+
+        // assert
+        assertEquals(List.of(3, 5), ids(views.featured(10)), "Because product 1 is no longer featured and 5 is new.");
+        assertEquals(List.of(5), ids(views.inStock(1, 10)), "Because product 1 moved to category 2 and product 2 was deleted.");
+        assertEquals(List.of(1, 4), ids(views.inStock(2, 10)), "Because product 1 moved into category 2 with stock left.");
+        assertEquals(List.of(3, 1), ids(views.lowStock(10)), "Because product 1 dropped below the threshold and product 2 was deleted.");
+    }
+
+    @Test
+    public void stockChanges_shouldMoveProducts_betweenStockViews()
+    {
+        // arrange
+        views.featured(1);
+
+        // act - one checkout that sold the last of product 4 and most of product 1
+        change(new ProductChangedEvent(Map.of(1, 2, 4, 0)));
+
+        // assert
+        assertEquals(List.of(), ids(views.inStock(2, 10)), "Because product 4 sold out.");
+        assertEquals(List.of(3, 4, 1, 2), ids(views.lowStock(10)), "Because both products dropped below the threshold.");
+    }
+
+    @Test
+    public void reads_shouldLeaveOut_productsNoLongerInTheCatalog()
+    {
+        // arrange
+        views.featured(1);
+
+        // act - the catalog has seen the delete, the views not yet
+        catalog.remove(1);
+
+        // assert
+        assertEquals(List.of(3), ids(views.featured(10)), "Because the products are read from the catalog.");
+    }
+
+    // applies the change to the catalog as well, as SnapshotProductDao does
+    private void change(ProductChangedEvent event)
+    {
+        if (event.getType() == ProductChangedEvent.Type.DELETED)
+            catalog.remove(event.getProductId());
+        else if (event.getType() == ProductChangedEvent.Type.STOCK_CHANGED)
+            event.getStock().forEach((productId, stock) -> catalog.computeIfPresent(productId,
+                    (id, product) -> product(id, product.getCategoryId(), stock, product.isFeatured())));
+        else
+            catalog.put(event.getProduct().getProductId(), event.getProduct());
+        views.onProductChanged(event);
+    }
+
+    private static List<Integer> ids(List<Product> products)
+    {
+        return products.stream().map(Product::getProductId).collect(Collectors.toList());
+    }
+
+    private static Product product(int id, int categoryId, int stock, boolean featured)
+    {
+        return new Product(id, "Product " + id, new BigDecimal("9.99"), categoryId, "", "Black", stock, featured, "");
+    }
+}
@@ -0,0 +1,217 @@
+package org.yearup.data.mysql;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.InsufficientStockException;
+import org.yearup.models.Order;
+import org.yearup.models.OrderHistoryPage;
+import org.yearup.models.OrderSummary;
+import org.yearup.models.Profile;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MySqlOrderDaoTest extends BaseDaoTestClass
+{
+    private MySqlOrderDao dao;
+
+    @BeforeEach
+    public void setup()
+    {
+        dao = new MySqlOrderDao(dataSource, 3);
+    }
+
+    // checkout commits, so what it changed is undone here rather than by the rollback
+    @AfterEach
+    public void undoCheckout() throws SQLException
+    {
+        Connection connection = dataSource.getConnection();
+        connection.setAutoCommit(false);
+        // whatever a test left uncommitted goes first, so the commit below does not keep it
+        connection.rollback();
+        execute("DELETE FROM order_line_items WHERE order_id IN (SELECT order_id FROM orders WHERE user_id = 1)");
+        execute("DELETE FROM orders WHERE user_id = 1");
+        execute("DELETE FROM shopping_cart WHERE user_id = 1");
+        execute("UPDATE products SET stock = 50 WHERE product_id = 1");
+        execute("UPDATE products SET stock = 30 WHERE product_id = 2");
+        connection.commit();
+    }
+
+    @Test
+    public void checkout_shouldReturnNull_forAnEmptyCart()
+    {
+        // act
+        Order order = dao.checkout(1, shipTo());
+
+        // assert
+        assertNull(order, "Because there is nothing in the cart to order.");
+    }
+
+    @Test
+    public void checkout_shouldTakeTheStock_andEmptyTheCart() throws SQLException
+    {
+        // arrange
+        addToCart(1, 1, 2);
+        addToCart(1, 2, 1);
+
+        // act
+        Order order = dao.checkout(1, shipTo());
+
+        // assert
+        assertEquals(48, stock(1), "Because two smartphones were ordered.");
+        assertEquals(29, stock(2), "Because one laptop was ordered.");
+        assertEquals(0, count("SELECT COUNT(*) FROM shopping_cart WHERE user_id = 1"), "Because the ordered cart is emptied.");
+        assertEquals(2, count("SELECT COUNT(*) FROM order_line_items WHERE order_id = " + order.getOrderId()), "Because there is one line item per product.");
+        assertEquals(new BigDecimal("1899.97"), order.getOrderTotal(), "Because the total is the sum of the line totals.");
+        assertEquals(3, order.getItemCount());
+    }
+
+    @Test
+    public void checkout_shouldChangeNothing_whenAProductIsShort() throws SQLException
+    {
+        // arrange - the smartphone is in stock, the laptop is not
+        addToCart(1, 1, 1);
+        addToCart(1, 2, 31);
+
+        // act
+        var thrown = assertThrows(InsufficientStockException.class, () -> dao.checkout(1, shipTo()));
+
+        // assert
+        assertEquals(2, thrown.getProductId(), "Because only 30 laptops are in stock.");
+        assertEquals(50, stock(1), "Because the stock taken for the smartphone was rolled back.");
+        assertEquals(30, stock(2));
+        assertEquals(2, count("SELECT COUNT(*) FROM shopping_cart WHERE user_id = 1"), "Because the cart is kept when the order fails.");
+        assertEquals(0, count("SELECT COUNT(*) FROM orders WHERE user_id = 1"), "Because no order was placed.");
+    }
+
+    @Test
+    public void getHistory_shouldPage_throughOrdersPlacedAtTheSameTime() throws SQLException
+    {
+        // arrange - three of the five orders share a date, so the order id decides their order
+        LocalDateTime noon = LocalDateTime.of(2024, 1, 2, 12, 0);
+        List<Integer> expected = new ArrayList<>();
+        expected.add(insertOrder(2, noon.plusDays(1)));
+        int first = insertOrder(2, noon);
+        int second = insertOrder(2, noon);
+        int third = insertOrder(2, noon);
+        expected.addAll(List.of(third, second, first));
+        expected.add(insertOrder(2, noon.minusDays(1)));
+
+        // act
+        List<Integer> actual = new ArrayList<>();
+        OrderSummary after = null;
+        do
+        {
+            OrderHistoryPage page = dao.getHistory(2, after, 2);
+            page.getOrders().forEach(order -> actual.add(order.getOrderId()));
+            after = page.getNextCursor() == null ? null : page.getOrders().get(page.getOrders().size() - 1);
+        }
+        while (after != null);
+
+        // assert
+        assertEquals(expected, actual, "Because every order is on exactly one page, newest first.");
+    }
+
+    @Test
+    public void getHistory_shouldSeek_toThePositionInTheIndex() throws SQLException
+    {
+        // arrange
+        LocalDateTime noon = LocalDateTime.of(2024, 1, 2, 12, 0);
+        for (int i = 0; i < 20; i++)
+        {
+            insertOrder(2, noon.plusHours(i));
+        }
+
+        // act
+        String type;
+        String key;
+        Connection connection = dataSource.getConnection();
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + MySqlOrderDao.historySql(true)))
+        {
+            Timestamp date = Timestamp.valueOf(noon.plusHours(10));
+            MySqlDaoBase.bind(statement, 2, date, date, Integer.MAX_VALUE, 6);
+            try (ResultSet row = statement.executeQuery())
+            {
+                row.next();
+                type = row.getString("type");
+                key = row.getString("key");
+            }
+        }
+
+        // assert
+        assertEquals("ix_orders_user_date", key, "Because the history is read from its covering index.");
+        assertEquals("range", type, "Because the position is part of the index range, not a filter on every newer order.");
+    }
+
+    // committed, since checkout runs its own transaction on the same connection
+    private void addToCart(int userId, int productId, int quantity) throws SQLException
+    {
+        Connection connection = dataSource.getConnection();
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO shopping_cart (user_id, product_id, quantity) VALUES (?, ?, ?)"))
+        {
+            MySqlDaoBase.bind(statement, userId, productId, quantity);
+            statement.executeUpdate();
+        }
+        connection.commit();
+    }
+
+    private int stock(int productId) throws SQLException
+    {
+        return count("SELECT stock FROM products WHERE product_id = " + productId);
+    }
+
+    private int count(String sql) throws SQLException
+    {
+        Connection connection = dataSource.getConnection();
+        try (PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet row = statement.executeQuery())
+        {
+            row.next();
+            return row.getInt(1);
+        }
+    }
+
+    private void execute(String sql) throws SQLException
+    {
+        Connection connection = dataSource.getConnection();
+        try (PreparedStatement statement = connection.prepareStatement(sql))
+        {
+            statement.executeUpdate();
+        }
+    }
+
+    private static Profile shipTo()
+    {
+        return new Profile(1, "Joe", "Joesephus", "800-555-1234", "joejoesephus@email.com", "789 Oak Avenue", "Dallas", "TX", "75051");
+    }
+
+    private int insertOrder(int userId, LocalDateTime date) throws SQLException
+    {
+        String sql = "INSERT INTO orders (user_id, date, address, city, state, zip, shipping_amount, order_total, item_count) " +
+                " VALUES (?, ?, '456 Elm Street', 'Dallas', 'TX', '75052', 0, 10, 1)";
+
+        Connection connection = dataSource.getConnection();
+        try (PreparedStatement statement = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS))
+        {
+            MySqlDaoBase.bind(statement, userId, Timestamp.valueOf(date));
+            statement.executeUpdate();
+            try (ResultSet generatedKeys = statement.getGeneratedKeys())
+            {
+                generatedKeys.next();
+                return generatedKeys.getInt(1);
+            }
+        }
+    }
+}
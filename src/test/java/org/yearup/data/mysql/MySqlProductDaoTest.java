@@ -9,6 +9,7 @@ import java.math.BigDecimal;
 import java.sql.SQLException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 class MySqlProductDaoTest extends BaseDaoTestClass
 {
@@ -45,4 +46,17 @@ class MySqlProductDaoTest extends BaseDaoTestClass
         assertEquals(expected.getPrice(), actual.getPrice(), "Because I tried to get product 1 from the database.");
     }
 
+    @Test
+    public void update_shouldReturnFalse_forAProductThatDoesNotExist()
+    {
+        // arrange
+        Product product = dao.getById(1);
+
+        // act
+        boolean updated = dao.update(999999, product);
+
+        // assert
+        assertFalse(updated, "Because there is no product 999999 to update.");
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package org.yearup.data.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.models.Product;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductSearchIndexTest
+{
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    public void setup()
+    {
+        index = new ProductSearchIndex();
+        index.addAll(List.of(
+                product(1, "Smartphone", "A powerful and feature-rich smartphone for all your communication needs."),
+                product(2, "Laptop", "A high-performance laptop for work and play."),
+                product(3, "Phone Case", "Protect your smartphone with this slim case."),
+                product(4, "Running Shoes", "Lightweight shoes for running and training.")
+        ));
+    }
+
+    @Test
+    public void search_shouldRank_nameMatchesFirst()
+    {
+        // act
+        var actual = index.search("smartphone", false, 10);
+
+        // assert
+        assertEquals(List.of(1, 3), actual, "Because product 1 has the word in its name and product 3 only in its description.");
+    }
+
+    @Test
+    public void search_shouldMatch_lastWordAsPrefix()
+    {
+        // act
+        var withPrefix = index.search("Lap", true, 10);
+        var withoutPrefix = index.search("Lap", false, 10);
+
+        // assert
+        assertEquals(List.of(2), withPrefix, "Because 'lap' is the start of 'laptop'.");
+        assertEquals(List.of(), withoutPrefix, "Because no product contains the whole word 'lap'.");
+    }
+
+    @Test
+    public void add_shouldReplace_theIndexedProduct()
+    {
+        // act
+        index.add(product(2, "Notebook", "A thin notebook computer."));
+        index.remove(4);
+
+        // assert
+        assertEquals(List.of(), index.search("laptop", false, 10), "Because product 2 was re-indexed without that word.");
+        assertEquals(List.of(2), index.search("notebook", false, 10), "Because product 2 was re-indexed with that word.");
+        assertEquals(List.of(), index.search("shoes", false, 10), "Because product 4 was removed.");
+        assertEquals(3, index.size());
+    }
+
+    private static Product product(int id, String name, String description)
+    {
+        return new Product(id, name, new BigDecimal("9.99"), 1, description, "Black", 10, false, "");
+    }
+}
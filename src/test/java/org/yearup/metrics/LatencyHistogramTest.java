@@ -0,0 +1,45 @@
+package org.yearup.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest
+{
+    @Test
+    public void percentiles_shouldBe_withinBucketPrecision()
+    {
+        // arrange
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // act
+        for (long value = 1; value <= 100_000; value++)
+        {
+            histogram.record(value);
+        }
+
+        // assert
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000, histogram.getMax());
+        assertWithin(50_000, histogram.getValueAtPercentile(50));
+        assertWithin(99_000, histogram.getValueAtPercentile(99));
+        assertWithin(99_900, histogram.getValueAtPercentile(99.9));
+    }
+
+    @Test
+    public void buckets_shouldCover_everyValue()
+    {
+        // assert
+        for (long value : new long[] { 0, 1, 15, 16, 17, 31, 32, 1_000_000, Long.MAX_VALUE })
+        {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(LatencyHistogram.upperBoundOf(bucket) >= value, "Because the bucket of " + value + " must contain it.");
+        }
+    }
+
+    private static void assertWithin(long expected, long actual)
+    {
+        assertTrue(Math.abs(actual - expected) <= expected / 16, "Because " + actual + " should be within 1/16 of " + expected);
+    }
+}
@@ -51,7 +51,12 @@ CREATE TABLE orders (
                         state VARCHAR(50) NOT NULL,
                         zip VARCHAR(20) NOT NULL,
                         shipping_amount DECIMAL(10, 2) NOT NULL DEFAULT 0,
+                        -- written at checkout: SUM(sales_price * quantity - discount) of the line items plus shipping_amount
+                        order_total DECIMAL(10, 2) NOT NULL DEFAULT 0,
+                        item_count INT NOT NULL DEFAULT 0,
                         PRIMARY KEY (order_id),
+                        -- order history reads a user's newest orders from this index alone
+                        INDEX ix_orders_user_date (user_id, date, order_id, order_total, item_count, shipping_amount),
                         FOREIGN KEY (user_id) REFERENCES users(user_id)
 );
 
@@ -63,6 +68,8 @@ CREATE TABLE order_line_items (
                                   quantity INT NOT NULL,
                                   discount DECIMAL(10, 2) NOT NULL DEFAULT 0,
                                   PRIMARY KEY (order_line_item_id),
+                                  -- the line items of an order, read without touching the table rows
+                                  INDEX ix_line_items_order (order_id, product_id, sales_price, quantity, discount),
                                   FOREIGN KEY (order_id) REFERENCES orders(order_id),
                                   FOREIGN KEY (product_id) REFERENCES products(product_id)
 );